@@ -0,0 +1,51 @@
+#!/usr/bin/env bash
+# Measures /api/stocks/list latency while synchronous PDF exports run concurrently.
+# Run it once against an instance started with VIRTUAL_THREADS=false and once with
+# VIRTUAL_THREADS=true (Java 21+) and compare the reported percentiles.
+#
+#   scripts/load-test.sh [base-url] [list-requests] [list-concurrency] [export-concurrency]
+set -euo pipefail
+
+BASE=${1:-http://localhost:8080}
+REQUESTS=${2:-500}
+CONCURRENCY=${3:-16}
+EXPORTS=${4:-32}
+LIST_QUERY=${LIST_QUERY:-"sortBy=close&sortDir=desc&limit=100"}
+# distinct export start dates, counted in days from the first loaded date; keep it below the data's span
+EXPORT_SPREAD=${EXPORT_SPREAD:-90}
+
+out=$(mktemp -d)
+trap 'kill $(jobs -p) 2>/dev/null || true; rm -rf "$out"' EXIT
+
+# GNU date, falling back to BSD date
+plus_days() {
+  date -u -d "$1 + $2 days" +%F 2>/dev/null || date -u -j -v+"$2"d -f %F "$1" +%F
+}
+
+first=$(curl -s "$BASE/api/stocks/list?sortBy=date&sortDir=asc&limit=1" | sed -n 's/.*"date":"\([0-9-]*\)".*/\1/p')
+if [ -z "$first" ]; then echo "no data at $BASE" >&2; exit 1; fi
+
+# background export load: each worker keeps one export in flight until the run ends. Identical
+# concurrent exports share a single render, so every request (worker i, round n) asks for its own
+# start date instead.
+for i in $(seq 1 "$EXPORTS"); do
+  (n=0; while true; do
+    start=$(plus_days "$first" $(((n * EXPORTS + i) % EXPORT_SPREAD)))
+    curl -s -o /dev/null "$BASE/api/stocks/export/pdf?startDate=$start" || true
+    n=$((n + 1))
+  done) &
+done
+sleep 2
+
+seq 1 "$REQUESTS" | xargs -P "$CONCURRENCY" -I{} \
+  curl -s -o /dev/null -w '%{time_total}\n' "$BASE/api/stocks/list?$LIST_QUERY" > "$out/list.txt"
+
+sort -n "$out/list.txt" | awk -v exports="$EXPORTS" '
+  { t[NR] = $1 * 1000 }
+  END {
+    if (NR == 0) { print "no samples"; exit 1 }
+    printf "list requests: %d (with %d concurrent exports)\n", NR, exports
+    printf "p50 %.1f ms  p90 %.1f ms  p99 %.1f ms  max %.1f ms\n",
+      t[int(NR * 0.50) + (NR * 0.50 > int(NR * 0.50))], t[int(NR * 0.90) + (NR * 0.90 > int(NR * 0.90))],
+      t[int(NR * 0.99) + (NR * 0.99 > int(NR * 0.99))], t[NR]
+  }'
@@ -0,0 +1,63 @@
+package com.example.stocks.bench;
+
+import com.example.stocks.config.ExecutionMode;
+import com.example.stocks.service.ChartService;
+import com.example.stocks.service.CsvStockLoader;
+import com.example.stocks.service.IndicatorService;
+import com.example.stocks.service.PdfService;
+import com.example.stocks.service.ScreenerService;
+import com.example.stocks.service.StockQueryService;
+import com.example.stocks.service.StockStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Wires the services by hand over a temporary directory of synthetic CSV data. All result caches
+ * are disabled so every invocation measures the real work.
+ */
+final class BenchFixture implements AutoCloseable {
+
+    static final int SECTORS = 10;
+
+    final Path dir;
+    final StockStore store;
+    final StockQueryService queryService;
+    final ChartService chartService;
+    final PdfService pdfService;
+    final ScreenerService screenerService;
+
+    BenchFixture(int tickers, int years, String chartMode) throws IOException {
+        dir = Files.createTempDirectory("stocks-bench");
+        SyntheticCsv.write(dir.resolve("stocks.csv"), SyntheticCsv.Style.STOCKS, tickers, years, 42);
+        SyntheticCsv.writeReference(dir.resolve("msequity.csv"), tickers, SECTORS);
+        ExecutionMode execution = new ExecutionMode(false);
+        MeterRegistry meters = new SimpleMeterRegistry();
+        store = new StockStore(new CsvStockLoader(dir.toString(), "msequity.csv", false, "", execution, meters),
+                event -> { }, meters);
+        store.load();
+        queryService = new StockQueryService(store, 0, meters);
+        chartService = new ChartService(queryService, store, new IndicatorService(0, meters), 0, 0, 1, meters);
+        pdfService = new PdfService(chartService, dir.resolve("exports").toString(), "Bench", chartMode, 20000,
+                execution, meters);
+        screenerService = new ScreenerService(store, meters);
+    }
+
+    @Override
+    public void close() throws IOException {
+        chartService.shutdown();
+        pdfService.shutdown();
+        deleteTree(dir);
+    }
+
+    static void deleteTree(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.stocks.bench;
+
+import com.example.stocks.model.ChartData;
+import com.example.stocks.service.ChartService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** Chart series assembly (full and down-sampled), JSON map building and PNG rasterization. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChartBenchmark {
+
+    @Param({"5", "50"})
+    public int chartTickers;
+
+    @Param({"100"})
+    public int tickers;
+
+    @Param({"5"})
+    public int years;
+
+    private BenchFixture fixture;
+    private Set<String> filter;
+    private ChartData full;
+    private ChartData reduced;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        fixture = new BenchFixture(tickers, years, "raster");
+        filter = new HashSet<>();
+        for (int i = 0; i < Math.min(chartTickers, tickers); i++) filter.add(SyntheticCsv.ticker(i));
+        full = fixture.chartService.buildSeries(filter, null, null, 0, null);
+        reduced = fixture.chartService.buildSeries(filter, null, null, ChartService.CHART_WIDTH, "lttb");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public ChartData buildSeries() {
+        return fixture.chartService.buildSeries(filter, null, null, 0, null);
+    }
+
+    @Benchmark
+    public ChartData buildSeriesLttb() {
+        return fixture.chartService.buildSeries(filter, null, null, ChartService.CHART_WIDTH, "lttb");
+    }
+
+    @Benchmark
+    public Map<String, Object> toResponse() {
+        return fixture.chartService.toResponse(full);
+    }
+
+    @Benchmark
+    public byte[] renderPng() throws IOException {
+        return fixture.chartService.renderLineChartPng("Bench", reduced);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.stocks.bench;
+
+import com.example.stocks.config.ExecutionMode;
+import com.example.stocks.model.TickerSeries;
+import com.example.stocks.service.CsvStockLoader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Files loaded per second for each CSV style, parsed from text or read back from the binary cache;
+ * the {@code rows} counter reports rows per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IngestBenchmark {
+
+    @Param({"STOCKS", "TREQUITY", "QUOTED"})
+    public SyntheticCsv.Style style;
+
+    @Param({"100"})
+    public int tickers;
+
+    @Param({"5"})
+    public int years;
+
+    @Param({"false", "true"})
+    public boolean binaryCache;
+
+    private Path dir;
+    private Path file;
+    private long fileRows;
+    private CsvStockLoader loader;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("stocks-ingest");
+        file = dir.resolve("data.csv");
+        fileRows = SyntheticCsv.write(file, style, tickers, years, 42);
+        loader = new CsvStockLoader(dir.toString(), "msequity.csv", binaryCache, "", new ExecutionMode(false),
+                new SimpleMeterRegistry());
+        if (binaryCache) loader.loadFile(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchFixture.deleteTree(dir);
+    }
+
+    @Benchmark
+    public Map<String, TickerSeries> loadFile(Rows counter) {
+        Map<String, TickerSeries> series = loader.loadFile(file);
+        counter.rows += fileRows;
+        return series;
+    }
+}
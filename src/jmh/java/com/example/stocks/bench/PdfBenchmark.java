@@ -0,0 +1,88 @@
+package com.example.stocks.bench;
+
+import com.example.stocks.model.ChartData;
+import com.example.stocks.model.QueryResult;
+import com.example.stocks.service.ChartService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** Full report generation into a discarding stream, with the chart rasterized or drawn as vectors. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PdfBenchmark {
+
+    @Param({"raster", "vector"})
+    public String chartMode;
+
+    @Param({"5"})
+    public int reportTickers;
+
+    @Param({"100"})
+    public int tickers;
+
+    @Param({"5"})
+    public int years;
+
+    private BenchFixture fixture;
+    private ChartData chartData;
+    private QueryResult rows;
+    private Map<String, String> filters;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        fixture = new BenchFixture(tickers, years, chartMode);
+        Set<String> filter = new HashSet<>();
+        for (int i = 0; i < Math.min(reportTickers, tickers); i++) filter.add(SyntheticCsv.ticker(i));
+        chartData = fixture.chartService.buildSeries(filter, null, null, ChartService.CHART_WIDTH, "lttb");
+        rows = fixture.queryService.select(filter, null, null, "date", "asc");
+        filters = Map.of("tickers", String.join(",", filter));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public long writePdf() throws IOException {
+        CountingSink out = new CountingSink();
+        fixture.pdfService.writePdf(out, "Bench", chartData, rows, filters);
+        return out.bytes;
+    }
+
+    private static final class CountingSink extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.stocks.bench;
+
+import com.example.stocks.model.Interval;
+import com.example.stocks.model.QueryResult;
+import com.example.stocks.model.StockPrice;
+import com.example.stocks.model.TickerFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** Uncached query latency by filter shape and sort key. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    /**
+     * all: every row; one: a single ticker; five: five tickers; lastYear: all tickers, final year;
+     * sector: the tickers of one sector (a tenth of them) resolved from the reference table.
+     */
+    @Param({"all", "one", "five", "lastYear", "sector"})
+    public String shape;
+
+    @Param({"date", "ticker", "close", "volume"})
+    public String sortBy;
+
+    @Param({"100"})
+    public int tickers;
+
+    @Param({"5"})
+    public int years;
+
+    private BenchFixture fixture;
+    private TickerFilter filter;
+    private LocalDate start;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        fixture = new BenchFixture(tickers, years, "raster");
+        Set<String> names = new HashSet<>();
+        Set<String> sectors = new HashSet<>();
+        switch (shape) {
+            case "one" -> names.add(SyntheticCsv.ticker(0));
+            case "five" -> {
+                for (int i = 0; i < 5; i++) names.add(SyntheticCsv.ticker(i * (tickers / 5)));
+            }
+            case "lastYear" -> start = LocalDate.ofEpochDay(fixture.store.snapshot().getMaxDay()).minusYears(1);
+            case "sector" -> sectors.add("S0");
+            default -> { }
+        }
+        filter = TickerFilter.of(names, sectors, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public QueryResult select() {
+        return fixture.queryService.select(filter, start, null, sortBy, "desc", Interval.DAY);
+    }
+
+    @Benchmark
+    public QueryResult firstPage() {
+        return fixture.queryService.page(filter, start, null, sortBy, "desc", Interval.DAY, 100, null);
+    }
+
+    /** The boxed {@code List<StockPrice>} the JSON list endpoint serializes. */
+    @Benchmark
+    public List<StockPrice> query() {
+        return fixture.queryService.select(filter, start, null, sortBy, "desc", Interval.DAY).toList();
+    }
+}
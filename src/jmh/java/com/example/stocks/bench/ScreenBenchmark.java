@@ -0,0 +1,61 @@
+package com.example.stocks.bench;
+
+import com.example.stocks.model.TickerFilter;
+import com.example.stocks.service.ScreenerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/** Top-20 screen across all tickers by window length and ranking metric. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScreenBenchmark {
+
+    @Param({"30", "365"})
+    public int days;
+
+    @Param({"RETURN", "AVG_VOLUME"})
+    public ScreenerService.Metric rankBy;
+
+    @Param({"2000"})
+    public int tickers;
+
+    @Param({"2"})
+    public int years;
+
+    private BenchFixture fixture;
+    private ScreenerService.Criteria criteria;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        fixture = new BenchFixture(tickers, years, "raster");
+        criteria = new ScreenerService.Criteria(TickerFilter.all(), null, days, rankBy, true, 20, 1.0, null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public ScreenerService.Screen screen() {
+        return fixture.screenerService.screen(criteria);
+    }
+}
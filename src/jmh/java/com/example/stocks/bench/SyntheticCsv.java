@@ -0,0 +1,88 @@
+package com.example.stocks.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/** Writes random-walk OHLCV data for {@code tickers} over {@code years} of weekdays. */
+public final class SyntheticCsv {
+
+    public enum Style {
+        /** {@code stocks.csv}: plain fields, ISO dates. */
+        STOCKS,
+        /** {@code trequity.csv}: every field quoted, aliased headers and extra columns. */
+        TREQUITY,
+        /** stocks columns with every field quoted and {@code yyyyMMdd} dates. */
+        QUOTED
+    }
+
+    private static final LocalDate START = LocalDate.of(2000, 1, 3);
+    private static final DateTimeFormatter BASIC = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private SyntheticCsv() {
+    }
+
+    public static String ticker(int i) {
+        return String.format(Locale.ROOT, "T%04d", i);
+    }
+
+    /** @return number of data rows written */
+    public static long write(Path file, Style style, int tickers, int years, long seed) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(seed);
+        LocalDate end = START.plusYears(years);
+        long rows = 0;
+        long txt = 1;
+        try (BufferedWriter w = Files.newBufferedWriter(file)) {
+            w.write(switch (style) {
+                case STOCKS, QUOTED -> "date,ticker,open,high,low,close,volume";
+                case TREQUITY -> "txtno,portid,portdate,opening,high,low,closing,bid,offer,volume,valuess";
+            });
+            w.newLine();
+            for (int t = 0; t < tickers; t++) {
+                String ticker = ticker(t);
+                double close = 1000 + rnd.nextInt(9000);
+                for (LocalDate d = START; d.isBefore(end); d = d.plusDays(1)) {
+                    if (d.getDayOfWeek() == DayOfWeek.SATURDAY || d.getDayOfWeek() == DayOfWeek.SUNDAY) continue;
+                    double open = close;
+                    close = Math.max(50, Math.round(open * (1 + (rnd.nextDouble() - 0.5) * 0.04)));
+                    double high = Math.max(open, close) + rnd.nextInt(50);
+                    double low = Math.max(1, Math.min(open, close) - rnd.nextInt(50));
+                    long volume = 100_000L + rnd.nextInt(50_000_000);
+                    switch (style) {
+                        case STOCKS -> w.write(String.format(Locale.ROOT, "%s,%s,%.3f,%.3f,%.3f,%.3f,%d",
+                                d, ticker, open, high, low, close, volume));
+                        case QUOTED -> w.write(String.format(Locale.ROOT, "\"%s\",\"%s\",\"%.3f\",\"%.3f\",\"%.3f\",\"%.3f\",\"%d\"",
+                                d.format(BASIC), ticker, open, high, low, close, volume));
+                        case TREQUITY -> w.write(String.format(Locale.ROOT,
+                                "\"%d\",\"%s\",\"%s\",\"%.3f\",\"%.3f\",\"%.3f\",\"%.3f\",\"%.3f\",\"%.3f\",\"%d\",\"%d\"",
+                                txt++, ticker, d, open, high, low, close, close - 25, close, volume, (long) (volume * close)));
+                    }
+                    w.newLine();
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes an {@code msequity.csv}-style reference table that puts ticker {@code i} in sector
+     * {@code "S<i % sectors>"} and subsector {@code "S<i % sectors>-<i % 3>"}.
+     */
+    public static void writeReference(Path file, int tickers, int sectors) throws IOException {
+        try (BufferedWriter w = Files.newBufferedWriter(file)) {
+            w.write("portid,portname,sectorid,sector,subsector,subsectorid,listeddate\n");
+            for (int i = 0; i < tickers; i++) {
+                String sector = "S" + (i % sectors);
+                w.write(String.format(Locale.ROOT, "\"%s\",\"Company %d\",\"%s\",\"Sector %d\",\"%s-%d\",\"%s-%d\",\"%s\"%n",
+                        ticker(i), i, sector, i % sectors, sector, i % 3, sector, i % 3, START));
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.stocks.config;
+
+import com.example.stocks.service.ChartService;
+import com.example.stocks.service.IndicatorService;
+import com.example.stocks.service.StockQueryService;
+import com.example.stocks.service.WeightedLruCache;
+import com.example.stocks.web.SnapshotCachingFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/** Publishes the result caches' size and hit/miss/eviction/coalesced counts, tagged {@code cache=query|chart|png|indicator|http}. */
+@Component
+public class CacheMetrics implements MeterBinder {
+
+    private final StockQueryService queryService;
+    private final ChartService chartService;
+    private final IndicatorService indicatorService;
+    private final SnapshotCachingFilter httpCache;
+
+    public CacheMetrics(StockQueryService queryService, ChartService chartService, IndicatorService indicatorService,
+                        SnapshotCachingFilter httpCache) {
+        this.queryService = queryService;
+        this.chartService = chartService;
+        this.indicatorService = indicatorService;
+        this.httpCache = httpCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "query", queryService.getCache());
+        bind(registry, "chart", chartService.getCache());
+        bind(registry, "png", chartService.getPngCache());
+        bind(registry, "indicator", indicatorService.getCache());
+        bind(registry, "http", httpCache.getCache());
+    }
+
+    private static void bind(MeterRegistry registry, String name, WeightedLruCache<?, ?> cache) {
+        Gauge.builder("stocks.cache.entries", cache, WeightedLruCache::size).tag("cache", name).register(registry);
+        Gauge.builder("stocks.cache.weight", cache, WeightedLruCache::weight).tag("cache", name)
+                .baseUnit("bytes").register(registry);
+        FunctionCounter.builder("stocks.cache.hits", cache, WeightedLruCache::hits).tag("cache", name).register(registry);
+        FunctionCounter.builder("stocks.cache.misses", cache, WeightedLruCache::misses).tag("cache", name).register(registry);
+        FunctionCounter.builder("stocks.cache.evictions", cache, WeightedLruCache::evictions).tag("cache", name).register(registry);
+        FunctionCounter.builder("stocks.cache.coalesced", cache, WeightedLruCache::coalesced).tag("cache", name).register(registry);
+    }
+}
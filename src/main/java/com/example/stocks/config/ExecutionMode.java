@@ -0,0 +1,84 @@
+package com.example.stocks.config;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether blocking work runs on virtual or platform threads. Virtual threads are used only
+ * when {@code spring.threads.virtual.enabled=true} and the runtime is Java 21 or newer; the same
+ * switch makes Spring Boot serve requests on virtual threads. The code is compiled for Java 17,
+ * so the Java 21 API is looked up reflectively.
+ */
+@Component
+public class ExecutionMode {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionMode.class);
+
+    private final boolean virtual;
+    private final ExecutorService blockingExecutor;
+
+    public ExecutionMode(@Value("${spring.threads.virtual.enabled:false}") boolean virtualRequested) {
+        boolean supported = Runtime.version().feature() >= 21;
+        if (virtualRequested && !supported) {
+            log.warn("Virtual threads need Java 21+, running on {}; using platform threads", Runtime.version());
+        }
+        this.virtual = virtualRequested && supported;
+        this.blockingExecutor = newBlockingExecutor("blocking-io-");
+        log.info("Blocking work runs on {} threads", virtual ? "virtual" : "platform");
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /** Shared executor for short blocking I/O tasks (file reads, archive writes). */
+    public ExecutorService blockingExecutor() {
+        return blockingExecutor;
+    }
+
+    /** Named threads: virtual in virtual mode, daemon platform threads otherwise. */
+    public ThreadFactory threadFactory(String prefix) {
+        if (virtual) {
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> type = Class.forName("java.lang.Thread$Builder");
+                builder = type.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+                return (ThreadFactory) type.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Virtual threads unavailable", e);
+            }
+        }
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /** One new thread per task in virtual mode (virtual threads are never pooled), a cached pool otherwise. */
+    public ExecutorService newBlockingExecutor(String prefix) {
+        ThreadFactory factory = threadFactory(prefix);
+        if (!virtual) return Executors.newCachedThreadPool(factory);
+        try {
+            Method m = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) m.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads unavailable", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        blockingExecutor.shutdown();
+    }
+}
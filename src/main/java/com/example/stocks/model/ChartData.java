@@ -0,0 +1,60 @@
+package com.example.stocks.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Close-price chart on a shared date axis. {@code values[t][i]} is the close of
+ * {@code tickers.get(t)} on {@code days[i]} (epoch day), or {@code NaN} when that ticker has no
+ * point there.
+ */
+public final class ChartData {
+    private final int[] days;
+    private final List<String> tickers;
+    private final double[][] values;
+    private long fingerprint;
+
+    public ChartData(int[] days, List<String> tickers, double[][] values) {
+        this.days = days;
+        this.tickers = tickers;
+        this.values = values;
+    }
+
+    public static ChartData empty() {
+        return new ChartData(new int[0], List.of(), new double[0][]);
+    }
+
+    public int[] getDays() { return days; }
+    public List<String> getTickers() { return tickers; }
+    public double[][] getValues() { return values; }
+    public int size() { return days.length; }
+    public boolean isEmpty() { return days.length == 0; }
+
+    /** 64-bit content hash of axis, tickers and values; equal charts have equal fingerprints. */
+    public long fingerprint() {
+        long h = fingerprint;
+        if (h == 0) {
+            h = 0xcbf29ce484222325L;
+            for (int d : days) h = mix(h, d);
+            for (String t : tickers) h = mix(h, t.hashCode());
+            for (double[] v : values) {
+                for (double d : v) h = mix(h, Double.doubleToLongBits(d));
+            }
+            if (h == 0) h = 1;
+            fingerprint = h;
+        }
+        return h;
+    }
+
+    /** Same axis, tickers and values; what an equal {@link #fingerprint()} only suggests. */
+    public boolean contentEquals(ChartData other) {
+        return this == other || Arrays.equals(days, other.days) && tickers.equals(other.tickers)
+                && Arrays.deepEquals(values, other.values);
+    }
+
+    private static long mix(long h, long v) {
+        h ^= v;
+        h *= 0x100000001b3L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.stocks.model;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/** A queued PDF export. Status fields are written by the worker thread and read by pollers. */
+public class ExportJob {
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    private final String id;
+    private final String key;
+    private final Instant createdAt = Instant.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant finishedAt;
+    private volatile Path file;
+    private volatile String error;
+
+    public ExportJob(String id, String key) {
+        this.id = id;
+        this.key = key;
+    }
+
+    public String getId() { return id; }
+    public String getKey() { return key; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Status getStatus() { return status; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public Path getFile() { return file; }
+    public String getError() { return error; }
+
+    public boolean isPending() {
+        return status == Status.QUEUED || status == Status.RUNNING;
+    }
+
+    public void running() {
+        status = Status.RUNNING;
+    }
+
+    public void done(Path file) {
+        this.file = file;
+        this.finishedAt = Instant.now();
+        this.status = Status.DONE;
+    }
+
+    public void failed(String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.status = Status.FAILED;
+    }
+}
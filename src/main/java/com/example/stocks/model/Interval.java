@@ -0,0 +1,66 @@
+package com.example.stocks.model;
+
+import java.time.LocalDate;
+
+/** Bar size for list and chart queries. Each bucket is identified by the epoch day it starts on. */
+public enum Interval {
+    DAY("1d"),
+    WEEK("1w"),
+    MONTH("1M"),
+    YEAR("1Y");
+
+    private final String code;
+
+    Interval(String code) {
+        this.code = code;
+    }
+
+    public String code() {
+        return code;
+    }
+
+    /** First day of the bucket containing {@code day}; weeks start on Monday. */
+    public int bucket(int day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day - Math.floorMod(day + 3, 7); // epoch day 0 was a Thursday
+            case MONTH -> (int) LocalDate.ofEpochDay(day).withDayOfMonth(1).toEpochDay();
+            case YEAR -> (int) LocalDate.ofEpochDay(day).withDayOfYear(1).toEpochDay();
+        };
+    }
+
+    /** First day of the bucket following the one starting on {@code bucketStart}. */
+    public int next(int bucketStart) {
+        return switch (this) {
+            case DAY -> bucketStart + 1;
+            case WEEK -> bucketStart + 7;
+            case MONTH -> (int) LocalDate.ofEpochDay(bucketStart).plusMonths(1).toEpochDay();
+            case YEAR -> (int) LocalDate.ofEpochDay(bucketStart).plusYears(1).toEpochDay();
+        };
+    }
+
+    /**
+     * Accepts {@code 1d|1w|1M|1Y} (month is upper-case {@code M}) or {@code day|week|month|year};
+     * blank means {@link #DAY}.
+     *
+     * @throws IllegalArgumentException for anything else
+     */
+    public static Interval parse(String value) {
+        if (value == null || value.isBlank()) return DAY;
+        for (Interval i : values()) {
+            if (i.code.equals(value) || i.name().equalsIgnoreCase(value)) return i;
+        }
+        // "1m" reads like minutes, so only the other codes are case-insensitive
+        if (!"1m".equals(value)) {
+            for (Interval i : values()) {
+                if (i.code.equalsIgnoreCase(value)) return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown interval: " + value);
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
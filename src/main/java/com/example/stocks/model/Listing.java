@@ -0,0 +1,34 @@
+package com.example.stocks.model;
+
+import java.time.LocalDate;
+
+/** One row of the reference table: a listed company and the sector and subsector it belongs to. */
+public final class Listing {
+    private final String ticker;
+    private final String name;
+    private final String sectorId;
+    private final String sector;
+    private final String subsectorId;
+    private final String subsector;
+    private final LocalDate listedDate;
+
+    public Listing(String ticker, String name, String sectorId, String sector,
+                   String subsectorId, String subsector, LocalDate listedDate) {
+        this.ticker = ticker;
+        this.name = name;
+        this.sectorId = sectorId;
+        this.sector = sector;
+        this.subsectorId = subsectorId;
+        this.subsector = subsector;
+        this.listedDate = listedDate;
+    }
+
+    public String getTicker() { return ticker; }
+    public String getName() { return name; }
+    public String getSectorId() { return sectorId; }
+    public String getSector() { return sector; }
+    public String getSubsectorId() { return subsectorId; }
+    public String getSubsector() { return subsector; }
+    /** {@code null} when the reference table has no parseable listing date. */
+    public LocalDate getListedDate() { return listedDate; }
+}
@@ -0,0 +1,88 @@
+package com.example.stocks.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.CRC32;
+
+/**
+ * Opaque keyset position for paged list queries: the sort key value of the last row returned plus
+ * its (ticker, date) tie-breaker. The next page starts strictly after this position, so every page
+ * costs the same regardless of how deep it is. The encoded form carries a CRC-32 so an edited or
+ * truncated token is rejected instead of silently seeking somewhere else.
+ */
+public final class PageCursor {
+    private final String sortKey;
+    private final boolean desc;
+    private final long value;
+    private final String ticker;
+    private final int day;
+
+    public PageCursor(String sortKey, boolean desc, long value, String ticker, int day) {
+        this.sortKey = sortKey;
+        this.desc = desc;
+        this.value = value;
+        this.ticker = ticker;
+        this.day = day;
+    }
+
+    /** Cursor positioned on {@code row} of {@code s}; {@code value} holds the raw sort column. */
+    public static PageCursor at(String sortKey, boolean desc, TickerSeries s, int row) {
+        long value = switch (sortKey) {
+            case "open" -> Double.doubleToLongBits(s.open(row));
+            case "high" -> Double.doubleToLongBits(s.high(row));
+            case "low" -> Double.doubleToLongBits(s.low(row));
+            case "close" -> Double.doubleToLongBits(s.close(row));
+            case "volume" -> s.volume(row);
+            default -> 0L;
+        };
+        return new PageCursor(sortKey, desc, value, s.getTicker(), s.day(row));
+    }
+
+    public String getSortKey() { return sortKey; }
+    public boolean isDesc() { return desc; }
+    public long getValue() { return value; }
+    public double getDoubleValue() { return Double.longBitsToDouble(value); }
+    public String getTicker() { return ticker; }
+    public int getDay() { return day; }
+
+    public String encode() {
+        byte[] key = sortKey.getBytes(StandardCharsets.UTF_8);
+        byte[] t = ticker.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(1 + key.length + 1 + 8 + 4 + 1 + t.length + 4);
+        buf.put((byte) key.length).put(key).put((byte) (desc ? 1 : 0)).putLong(value).putInt(day)
+                .put((byte) t.length).put(t);
+        buf.putInt(crc(buf.array(), buf.position()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buf.array());
+    }
+
+    /** @throws IllegalArgumentException if {@code token} is not a cursor produced by {@link #encode()} */
+    public static PageCursor decode(String token) {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(token);
+            int payload = bytes.length - 4;
+            if (payload < 0 || ByteBuffer.wrap(bytes, payload, 4).getInt() != crc(bytes, payload)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            ByteBuffer buf = ByteBuffer.wrap(bytes, 0, payload);
+            byte[] key = new byte[buf.get() & 0xFF];
+            buf.get(key);
+            boolean desc = buf.get() == 1;
+            long value = buf.getLong();
+            int day = buf.getInt();
+            byte[] t = new byte[buf.get() & 0xFF];
+            buf.get(t);
+            if (buf.hasRemaining()) throw new IllegalArgumentException("Invalid cursor");
+            return new PageCursor(new String(key, StandardCharsets.UTF_8), desc, value,
+                    new String(t, StandardCharsets.UTF_8), day);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private static int crc(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+}
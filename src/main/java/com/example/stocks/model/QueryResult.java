@@ -0,0 +1,52 @@
+package com.example.stocks.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ordered query result that points into the resident {@link TickerSeries} instead of copying
+ * rows. Each entry packs the index into {@link #getSeries()} in the high 32 bits and the row
+ * within that series in the low 32 bits.
+ */
+public final class QueryResult {
+    private final TickerSeries[] series;
+    private final long[] refs;
+    private final PageCursor next;
+
+    public QueryResult(TickerSeries[] series, long[] refs) {
+        this(series, refs, null);
+    }
+
+    public QueryResult(TickerSeries[] series, long[] refs, PageCursor next) {
+        this.series = series;
+        this.refs = refs;
+        this.next = next;
+    }
+
+    public static QueryResult empty() {
+        return new QueryResult(new TickerSeries[0], new long[0]);
+    }
+
+    public static long ref(int seriesIndex, int row) {
+        return ((long) seriesIndex << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    public TickerSeries[] getSeries() { return series; }
+    /** Position to continue from when this is a page with more rows after it, otherwise null. */
+    public PageCursor getNext() { return next; }
+    public int size() { return refs.length; }
+    public boolean isEmpty() { return refs.length == 0; }
+    public int seriesIndex(int i) { return (int) (refs[i] >>> 32); }
+    public TickerSeries series(int i) { return series[seriesIndex(i)]; }
+    public int row(int i) { return (int) refs[i]; }
+
+    public StockPrice get(int i) {
+        return series(i).toStockPrice(row(i));
+    }
+
+    public List<StockPrice> toList() {
+        List<StockPrice> list = new ArrayList<>(refs.length);
+        for (int i = 0; i < refs.length; i++) list.add(get(i));
+        return list;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.stocks.model;
+
+import java.time.LocalDate;
+
+/**
+ * One ticker that passed a screen: its close-to-close change and average volume over the lookback
+ * window, plus its reference data when the ticker is listed in the reference table.
+ */
+public final class ScreenRow {
+    private final String ticker;
+    private final String name;
+    private final String sectorId;
+    private final String sector;
+    private final String subsectorId;
+    private final String subsector;
+    private final LocalDate firstDate;
+    private final LocalDate lastDate;
+    private final double firstClose;
+    private final double lastClose;
+    private final double changePercent;
+    private final double avgVolume;
+    private final int rows;
+
+    public ScreenRow(String ticker, Listing listing, LocalDate firstDate, LocalDate lastDate, double firstClose,
+                     double lastClose, double changePercent, double avgVolume, int rows) {
+        this.ticker = ticker;
+        this.name = listing == null ? null : listing.getName();
+        this.sectorId = listing == null ? null : listing.getSectorId();
+        this.sector = listing == null ? null : listing.getSector();
+        this.subsectorId = listing == null ? null : listing.getSubsectorId();
+        this.subsector = listing == null ? null : listing.getSubsector();
+        this.firstDate = firstDate;
+        this.lastDate = lastDate;
+        this.firstClose = firstClose;
+        this.lastClose = lastClose;
+        this.changePercent = changePercent;
+        this.avgVolume = avgVolume;
+        this.rows = rows;
+    }
+
+    public String getTicker() { return ticker; }
+    public String getName() { return name; }
+    public String getSectorId() { return sectorId; }
+    public String getSector() { return sector; }
+    public String getSubsectorId() { return subsectorId; }
+    public String getSubsector() { return subsector; }
+    /** Date of the first close in the window. */
+    public LocalDate getFirstDate() { return firstDate; }
+    /** Date of the last close in the window. */
+    public LocalDate getLastDate() { return lastDate; }
+    public double getFirstClose() { return firstClose; }
+    public double getLastClose() { return lastClose; }
+    public double getChangePercent() { return changePercent; }
+    public double getAvgVolume() { return avgVolume; }
+    /** Trading rows in the window. */
+    public int getRows() { return rows; }
+}
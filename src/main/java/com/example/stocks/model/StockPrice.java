@@ -1,31 +1,28 @@
 package com.example.stocks.model;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 
 public class StockPrice {
     private LocalDate date;
     private String ticker;
-    private BigDecimal open;
-    private BigDecimal high;
-    private BigDecimal low;
-    private BigDecimal close;
+    private Double open;
+    private Double high;
+    private Double low;
+    private Double close;
     private long volume;
 
     public LocalDate getDate() { return date; }
     public void setDate(LocalDate date) { this.date = date; }
     public String getTicker() { return ticker; }
     public void setTicker(String ticker) { this.ticker = ticker; }
-    public BigDecimal getOpen() { return open; }
-    public void setOpen(BigDecimal open) { this.open = open; }
-    public BigDecimal getHigh() { return high; }
-    public void setHigh(BigDecimal high) { this.high = high; }
-    public BigDecimal getLow() { return low; }
-    public void setLow(BigDecimal low) { this.low = low; }
-    public BigDecimal getClose() { return close; }
-    public void setClose(BigDecimal close) { this.close = close; }
+    public Double getOpen() { return open; }
+    public void setOpen(Double open) { this.open = open; }
+    public Double getHigh() { return high; }
+    public void setHigh(Double high) { this.high = high; }
+    public Double getLow() { return low; }
+    public void setLow(Double low) { this.low = low; }
+    public Double getClose() { return close; }
+    public void setClose(Double close) { this.close = close; }
     public long getVolume() { return volume; }
     public void setVolume(long volume) { this.volume = volume; }
 }
-
-
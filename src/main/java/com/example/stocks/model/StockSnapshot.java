@@ -0,0 +1,102 @@
+package com.example.stocks.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable view of all loaded price data. {@link #getSeries()} is the merged per-ticker view in
+ * ascending ticker order; {@link #getFiles()} keeps what each source file contributed so a single
+ * file can be re-parsed without touching the others. {@link #series(Interval)} holds the same data
+ * rolled up to weekly, monthly and yearly bars. {@link #getIndex()} dictionary-encodes the tickers
+ * together with the sectors and subsectors of {@link #getListings()}; {@link #seriesById(Interval)}
+ * maps those ids back to series.
+ */
+public final class StockSnapshot {
+    private final long version;
+    private final Map<String, Map<String, TickerSeries>> files;
+    private final Map<String, TickerSeries> series;
+    private final Map<Interval, Map<String, TickerSeries>> rollups;
+    private final Map<Interval, TickerSeries[]> byId = new EnumMap<>(Interval.class);
+    private final Map<String, Listing> listings;
+    private final TickerIndex index;
+    private final long rowCount;
+    private final int minDay;
+    private final int maxDay;
+
+    public StockSnapshot(long version,
+                         Map<String, Map<String, TickerSeries>> files,
+                         Map<String, TickerSeries> series,
+                         Map<Interval, Map<String, TickerSeries>> rollups,
+                         Map<String, Listing> listings) {
+        this.version = version;
+        this.files = Collections.unmodifiableMap(new TreeMap<>(files));
+        this.series = Collections.unmodifiableMap(new TreeMap<>(series));
+        this.rollups = new EnumMap<>(Interval.class);
+        this.rollups.put(Interval.DAY, this.series);
+        rollups.forEach((interval, s) -> {
+            if (interval != Interval.DAY) this.rollups.put(interval, Collections.unmodifiableMap(new TreeMap<>(s)));
+        });
+        this.listings = Collections.unmodifiableMap(new TreeMap<>(listings));
+        this.index = new TickerIndex(this.series.keySet(), this.listings);
+        this.rollups.forEach((interval, s) -> {
+            TickerSeries[] ids = new TickerSeries[index.size()];
+            s.forEach((ticker, t) -> {
+                int id = index.id(ticker);
+                if (id >= 0) ids[id] = t;
+            });
+            byId.put(interval, ids);
+        });
+        long rows = 0;
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (TickerSeries s : this.series.values()) {
+            rows += s.size();
+            if (s.size() == 0) continue;
+            min = Math.min(min, s.day(0));
+            max = Math.max(max, s.day(s.size() - 1));
+        }
+        this.rowCount = rows;
+        this.minDay = min;
+        this.maxDay = max;
+    }
+
+    public static StockSnapshot empty() {
+        return new StockSnapshot(0, Map.of(), Map.of(), Map.of(), Map.of());
+    }
+
+    public long getVersion() { return version; }
+    public Map<String, Map<String, TickerSeries>> getFiles() { return files; }
+    public Map<String, TickerSeries> getSeries() { return series; }
+    /** Per-ticker bars at {@code interval}; empty if no rollup was built for it. */
+    public Map<String, TickerSeries> series(Interval interval) { return rollups.getOrDefault(interval, Map.of()); }
+    /** Bars at {@code interval} indexed by ticker id; shared, do not modify. */
+    public TickerSeries[] seriesById(Interval interval) { return byId.getOrDefault(interval, new TickerSeries[index.size()]); }
+    /**
+     * Bars at {@code interval} of the tickers matched by {@code filter}, in ticker order. Ids follow
+     * ticker order, so walking the resolved bitmap yields the series already sorted.
+     */
+    public List<TickerSeries> match(Interval interval, TickerFilter filter) {
+        BitSet ids = index.resolve(filter);
+        if (ids == null) return new ArrayList<>(series(interval).values());
+        TickerSeries[] all = seriesById(interval);
+        List<TickerSeries> matched = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            if (all[id] != null) matched.add(all[id]);
+        }
+        return matched;
+    }
+
+    /** Reference table rows by ticker; tickers without price data are included. */
+    public Map<String, Listing> getListings() { return listings; }
+    public TickerIndex getIndex() { return index; }
+    public long getRowCount() { return rowCount; }
+    public boolean isEmpty() { return rowCount == 0; }
+    /** Earliest epoch day across all tickers; {@code Integer.MAX_VALUE} when empty. */
+    public int getMinDay() { return minDay; }
+    /** Latest epoch day across all tickers; {@code Integer.MIN_VALUE} when empty. */
+    public int getMaxDay() { return maxDay; }
+}
@@ -0,0 +1,81 @@
+package com.example.stocks.model;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Which tickers a query covers: explicit tickers, sectors and subsectors. Values within one
+ * component are a union and the non-empty components are intersected; an empty filter covers every
+ * ticker. Sectors and subsectors are upper-cased and match either the id or the name in the
+ * reference table.
+ */
+public final class TickerFilter {
+    private static final TickerFilter ALL = new TickerFilter(new TreeSet<>(), new TreeSet<>(), new TreeSet<>());
+
+    private final SortedSet<String> tickers;
+    private final SortedSet<String> sectors;
+    private final SortedSet<String> subsectors;
+
+    private TickerFilter(SortedSet<String> tickers, SortedSet<String> sectors, SortedSet<String> subsectors) {
+        this.tickers = Collections.unmodifiableSortedSet(tickers);
+        this.sectors = Collections.unmodifiableSortedSet(sectors);
+        this.subsectors = Collections.unmodifiableSortedSet(subsectors);
+    }
+
+    public static TickerFilter all() {
+        return ALL;
+    }
+
+    public static TickerFilter of(Set<String> tickers) {
+        return of(tickers, null, null);
+    }
+
+    public static TickerFilter of(Set<String> tickers, Set<String> sectors, Set<String> subsectors) {
+        TickerFilter f = new TickerFilter(tickers == null ? new TreeSet<>() : new TreeSet<>(tickers),
+                upper(sectors), upper(subsectors));
+        return f.isAll() ? ALL : f;
+    }
+
+    private static SortedSet<String> upper(Set<String> values) {
+        SortedSet<String> out = new TreeSet<>();
+        if (values != null) values.forEach(v -> out.add(v.toUpperCase(Locale.ROOT)));
+        return out;
+    }
+
+    public SortedSet<String> getTickers() { return tickers; }
+    public SortedSet<String> getSectors() { return sectors; }
+    public SortedSet<String> getSubsectors() { return subsectors; }
+
+    public boolean isAll() {
+        return tickers.isEmpty() && sectors.isEmpty() && subsectors.isEmpty();
+    }
+
+    /** True when sectors or subsectors restrict the result. */
+    public boolean hasGroups() {
+        return !sectors.isEmpty() || !subsectors.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TickerFilter f)) return false;
+        return tickers.equals(f.tickers) && sectors.equals(f.sectors) && subsectors.equals(f.subsectors);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tickers, sectors, subsectors);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("tickers=").append(tickers);
+        if (!sectors.isEmpty()) sb.append(" sector=").append(sectors);
+        if (!subsectors.isEmpty()) sb.append(" subsector=").append(subsectors);
+        return sb.toString();
+    }
+}
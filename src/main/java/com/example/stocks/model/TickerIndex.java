@@ -0,0 +1,104 @@
+package com.example.stocks.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dictionary encoding of a snapshot's tickers, sectors and subsectors. Ticker ids are positions in
+ * ascending ticker order, so iterating a bitmap of ids visits tickers in order. Each sector and
+ * subsector code owns a bitmap of member ticker ids, and a {@link TickerFilter} resolves to
+ * unions and intersections of those bitmaps instead of string lookups per ticker.
+ *
+ * <p>The ticker universe of an IDX-style market is a few thousand ids at most, so plain
+ * {@link BitSet}s are dense enough.
+ */
+public final class TickerIndex {
+    private final List<String> tickers;
+    private final Map<String, Integer> ids;
+    private final Map<String, Integer> sectorCodes = new HashMap<>();
+    private final List<BitSet> sectors = new ArrayList<>();
+    private final Map<String, Integer> subsectorCodes = new HashMap<>();
+    private final List<BitSet> subsectors = new ArrayList<>();
+
+    /** @param tickers ascending, as the keys of the snapshot's series map */
+    public TickerIndex(Collection<String> tickers, Map<String, Listing> listings) {
+        this.tickers = List.copyOf(tickers);
+        this.ids = new HashMap<>(this.tickers.size() * 2);
+        for (int i = 0; i < this.tickers.size(); i++) ids.put(this.tickers.get(i), i);
+        listings.forEach((ticker, l) -> {
+            Integer id = ids.get(ticker);
+            if (id == null) return;
+            add(sectorCodes, sectors, id, l.getSectorId(), l.getSector());
+            add(subsectorCodes, subsectors, id, l.getSubsectorId(), l.getSubsector());
+        });
+    }
+
+    // the id and the display name of a group share one code
+    private static void add(Map<String, Integer> codes, List<BitSet> members, int id, String groupId, String name) {
+        String a = key(groupId);
+        String b = key(name);
+        if (a == null && b == null) return;
+        Integer code = a != null ? codes.get(a) : null;
+        if (code == null && b != null) code = codes.get(b);
+        if (code == null) {
+            code = members.size();
+            members.add(new BitSet());
+        }
+        if (a != null) codes.putIfAbsent(a, code);
+        if (b != null) codes.putIfAbsent(b, code);
+        members.get(code).set(id);
+    }
+
+    private static String key(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public int size() { return tickers.size(); }
+    public String ticker(int id) { return tickers.get(id); }
+
+    /** Ticker id, or -1 when the ticker has no price data. */
+    public int id(String ticker) {
+        Integer id = ids.get(ticker);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Ids of the tickers covered by {@code filter}, or {@code null} when it covers all of them.
+     * Unknown tickers, sectors and subsectors match nothing. The returned set is a fresh copy.
+     */
+    public BitSet resolve(TickerFilter filter) {
+        if (filter.isAll()) return null;
+        BitSet bits = null;
+        if (!filter.getTickers().isEmpty()) {
+            bits = new BitSet(tickers.size());
+            for (String t : filter.getTickers()) {
+                Integer id = ids.get(t);
+                if (id != null) bits.set(id);
+            }
+        }
+        bits = intersect(bits, union(sectorCodes, sectors, filter.getSectors()));
+        return intersect(bits, union(subsectorCodes, subsectors, filter.getSubsectors()));
+    }
+
+    private BitSet union(Map<String, Integer> codes, List<BitSet> members, Set<String> values) {
+        if (values.isEmpty()) return null;
+        BitSet bits = new BitSet(tickers.size());
+        for (String v : values) {
+            Integer code = codes.get(v);
+            if (code != null) bits.or(members.get(code));
+        }
+        return bits;
+    }
+
+    private static BitSet intersect(BitSet a, BitSet b) {
+        if (a == null) return b;
+        if (b != null) a.and(b);
+        return a;
+    }
+}
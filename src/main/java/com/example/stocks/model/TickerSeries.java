@@ -0,0 +1,289 @@
+package com.example.stocks.model;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable columnar price history of a single ticker, sorted by date with one row per day.
+ * Dates are epoch days; missing prices are stored as {@code NaN}.
+ */
+public final class TickerSeries {
+    private static final AtomicLong IDS = new AtomicLong();
+
+    private final String ticker;
+    private final int[] days;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final long[] volume;
+    private final long id = IDS.incrementAndGet();
+    // id of the series this one was derived from, and how many leading rows the two share
+    private final long baseId;
+    private final int sharedRows;
+
+    private TickerSeries(String ticker, int[] days, double[] open, double[] high,
+                         double[] low, double[] close, long[] volume) {
+        this(ticker, days, open, high, low, close, volume, 0, 0);
+    }
+
+    private TickerSeries(String ticker, int[] days, double[] open, double[] high,
+                         double[] low, double[] close, long[] volume, long baseId, int sharedRows) {
+        this.baseId = baseId;
+        this.sharedRows = sharedRows;
+        this.ticker = ticker;
+        this.days = days;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    /**
+     * Wraps already sorted, de-duplicated columns of equal length without copying them, e.g. ones
+     * read back from a binary cache. Use {@link #builder(String)} for anything else.
+     */
+    public static TickerSeries of(String ticker, int[] days, double[] open, double[] high,
+                                  double[] low, double[] close, long[] volume) {
+        int n = days.length;
+        if (open.length != n || high.length != n || low.length != n || close.length != n || volume.length != n) {
+            throw new IllegalArgumentException("Column lengths differ for " + ticker);
+        }
+        for (int i = 1; i < n; i++) {
+            if (days[i] <= days[i - 1]) throw new IllegalArgumentException("Days not strictly ascending for " + ticker);
+        }
+        return new TickerSeries(ticker, days, open, high, low, close, volume);
+    }
+
+    public String getTicker() { return ticker; }
+    public int size() { return days.length; }
+    public int day(int i) { return days[i]; }
+    public LocalDate date(int i) { return LocalDate.ofEpochDay(days[i]); }
+    public double open(int i) { return open[i]; }
+    public double high(int i) { return high[i]; }
+    public double low(int i) { return low[i]; }
+    public double close(int i) { return close[i]; }
+    public long volume(int i) { return volume[i]; }
+
+    /** Index of the first row on or after {@code day}, or {@link #size()} if there is none. */
+    public int lowerBound(int day) {
+        int lo = 0, hi = days.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] < day) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Index of the first row after {@code day}, or {@link #size()} if there is none. */
+    public int upperBound(int day) {
+        int lo = 0, hi = days.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] <= day) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Index of the first row that differs from {@code other} (date or any column), or the shorter
+     * length when one series is a prefix of the other.
+     */
+    public int mismatch(TickerSeries other) {
+        int n = Math.min(size(), other.size());
+        int m = Arrays.mismatch(days, 0, n, other.days, 0, n);
+        if (m >= 0) n = m;
+        m = Arrays.mismatch(close, 0, n, other.close, 0, n);
+        if (m >= 0) n = m;
+        m = Arrays.mismatch(volume, 0, n, other.volume, 0, n);
+        if (m >= 0) n = m;
+        m = Arrays.mismatch(open, 0, n, other.open, 0, n);
+        if (m >= 0) n = m;
+        m = Arrays.mismatch(high, 0, n, other.high, 0, n);
+        if (m >= 0) n = m;
+        m = Arrays.mismatch(low, 0, n, other.low, 0, n);
+        if (m >= 0) n = m;
+        return n;
+    }
+
+    /**
+     * This series, remembering how many leading rows it shares with {@code previous} so that
+     * {@link #rowsSharedWith} and {@link #rollup(Interval, TickerSeries, TickerSeries)} need not
+     * compare them again.
+     */
+    public TickerSeries derivedFrom(TickerSeries previous) {
+        return new TickerSeries(ticker, days, open, high, low, close, volume, previous.id, mismatch(previous));
+    }
+
+    /**
+     * Leading rows known to equal {@code older} without comparing them: all of them for this very
+     * series, the recorded prefix when this series was derived from {@code older}, otherwise 0.
+     */
+    public int rowsSharedWith(TickerSeries older) {
+        if (older == this) return size();
+        return older.id == baseId ? sharedRows : 0;
+    }
+
+    /**
+     * Aggregates the daily rows into one row per {@code interval} bucket dated on the bucket's first
+     * day: open of the first row, highest high, lowest low, close of the last row, summed volume.
+     * Missing prices are skipped.
+     */
+    public TickerSeries rollup(Interval interval) {
+        if (interval == Interval.DAY) return this;
+        Builder b = new Builder(ticker);
+        aggregate(interval, 0, b);
+        return b.build();
+    }
+
+    /**
+     * Same result as {@link #rollup(Interval)}, but reuses the buckets of {@code previousRollup}
+     * (the rollup of {@code previous}) that lie before the first row where this series and
+     * {@code previous} differ. Appending a day only re-aggregates the last bucket. The result is
+     * {@linkplain #derivedFrom derived from} {@code previousRollup}.
+     */
+    public TickerSeries rollup(Interval interval, TickerSeries previous, TickerSeries previousRollup) {
+        if (interval == Interval.DAY) return this;
+        if (previous == null || previousRollup == null) return rollup(interval);
+        int m = previous.id == baseId ? sharedRows : mismatch(previous);
+        if (m == size() && m == previous.size()) return previousRollup;
+        int dirty = Integer.MAX_VALUE;
+        if (m < size()) dirty = interval.bucket(days[m]);
+        if (m < previous.size()) dirty = Math.min(dirty, interval.bucket(previous.days[m]));
+        int keep = previousRollup.lowerBound(dirty);
+        Builder b = new Builder(ticker);
+        for (int i = 0; i < keep; i++) {
+            b.add(previousRollup.days[i], previousRollup.open[i], previousRollup.high[i],
+                    previousRollup.low[i], previousRollup.close[i], previousRollup.volume[i]);
+        }
+        aggregate(interval, lowerBound(dirty), b);
+        TickerSeries r = b.build();
+        return new TickerSeries(ticker, r.days, r.open, r.high, r.low, r.close, r.volume, previousRollup.id, keep);
+    }
+
+    private void aggregate(Interval interval, int from, Builder out) {
+        int i = from;
+        while (i < days.length) {
+            int start = interval.bucket(days[i]);
+            int end = interval.next(start);
+            double o = Double.NaN, h = Double.NaN, l = Double.NaN, c = Double.NaN;
+            long v = 0;
+            for (; i < days.length && days[i] < end; i++) {
+                if (Double.isNaN(o)) o = open[i];
+                if (!Double.isNaN(high[i]) && (Double.isNaN(h) || high[i] > h)) h = high[i];
+                if (!Double.isNaN(low[i]) && (Double.isNaN(l) || low[i] < l)) l = low[i];
+                if (!Double.isNaN(close[i])) c = close[i];
+                v += volume[i];
+            }
+            out.add(start, o, h, l, c, v);
+        }
+    }
+
+    public StockPrice toStockPrice(int i) {
+        StockPrice sp = new StockPrice();
+        sp.setDate(date(i));
+        sp.setTicker(ticker);
+        sp.setOpen(boxed(open[i]));
+        sp.setHigh(boxed(high[i]));
+        sp.setLow(boxed(low[i]));
+        sp.setClose(boxed(close[i]));
+        sp.setVolume(volume[i]);
+        return sp;
+    }
+
+    private static Double boxed(double v) {
+        return Double.isNaN(v) ? null : v;
+    }
+
+    public static Builder builder(String ticker) {
+        return new Builder(ticker);
+    }
+
+    public static final class Builder {
+        private final String ticker;
+        private int size;
+        private int[] days = new int[64];
+        private double[] open = new double[64];
+        private double[] high = new double[64];
+        private double[] low = new double[64];
+        private double[] close = new double[64];
+        private long[] volume = new long[64];
+
+        private Builder(String ticker) {
+            this.ticker = ticker;
+        }
+
+        public Builder add(int day, double o, double h, double l, double c, long v) {
+            if (size == days.length) grow();
+            days[size] = day;
+            open[size] = o;
+            high[size] = h;
+            low[size] = l;
+            close[size] = c;
+            volume[size] = v;
+            size++;
+            return this;
+        }
+
+        /** Appends every row of {@code series}; later rows win over earlier ones on the same day. */
+        public Builder addAll(TickerSeries series) {
+            for (int i = 0; i < series.size(); i++) {
+                add(series.days[i], series.open[i], series.high[i], series.low[i], series.close[i], series.volume[i]);
+            }
+            return this;
+        }
+
+        public int size() { return size; }
+
+        private void grow() {
+            int cap = days.length * 2;
+            days = Arrays.copyOf(days, cap);
+            open = Arrays.copyOf(open, cap);
+            high = Arrays.copyOf(high, cap);
+            low = Arrays.copyOf(low, cap);
+            close = Arrays.copyOf(close, cap);
+            volume = Arrays.copyOf(volume, cap);
+        }
+
+        public TickerSeries build() {
+            // sort (day, insertion index) pairs so the last row added for a day is the one kept
+            long[] order = new long[size];
+            boolean sorted = true;
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) days[i] << 32) | i;
+                if (i > 0 && days[i] <= days[i - 1]) sorted = false;
+            }
+            if (sorted) {
+                return new TickerSeries(ticker, Arrays.copyOf(days, size), Arrays.copyOf(open, size),
+                        Arrays.copyOf(high, size), Arrays.copyOf(low, size), Arrays.copyOf(close, size),
+                        Arrays.copyOf(volume, size));
+            }
+            Arrays.sort(order);
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (i + 1 < size && (int) (order[i + 1] >> 32) == (int) (order[i] >> 32)) continue;
+                order[n++] = order[i];
+            }
+            int[] d = new int[n];
+            double[] o = new double[n];
+            double[] h = new double[n];
+            double[] l = new double[n];
+            double[] c = new double[n];
+            long[] v = new long[n];
+            for (int k = 0; k < n; k++) {
+                int i = (int) order[k];
+                d[k] = days[i];
+                o[k] = open[i];
+                h[k] = high[i];
+                l[k] = low[i];
+                c[k] = close[i];
+                v[k] = volume[i];
+            }
+            return new TickerSeries(ticker, d, o, h, l, c, v);
+        }
+    }
+}
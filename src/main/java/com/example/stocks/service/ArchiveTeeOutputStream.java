@@ -0,0 +1,152 @@
+package com.example.stocks.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Writes to a primary stream and hands copies of the same bytes to a background task that
+ * appends them to an archive file. The archive is written to a temporary name and moved into
+ * place only when complete. A failing archive never fails the primary stream; the writer only
+ * waits when the archive task falls more than {@code QUEUE_CHUNKS} chunks behind. {@link #archived()}
+ * completes with the archive once it is in place, or exceptionally when it was not written.
+ */
+final class ArchiveTeeOutputStream extends OutputStream {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveTeeOutputStream.class);
+    private static final int QUEUE_CHUNKS = 64;
+    private static final int CHUNK = 64 * 1024;
+    private static final byte[] EOF = new byte[0];
+    private static final byte[] ABORT = new byte[0];
+
+    private final OutputStream primary;
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+    private final byte[] buf = new byte[CHUNK];
+    private final CompletableFuture<Path> archived = new CompletableFuture<>();
+    private int count;
+    private volatile boolean archiveFailed;
+    private boolean closed;
+
+    ArchiveTeeOutputStream(OutputStream primary, Path archive, Executor executor) {
+        this.primary = primary;
+        executor.execute(() -> drain(archive));
+    }
+
+    CompletableFuture<Path> archived() {
+        return archived;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        primary.write(b);
+        if (count == buf.length) flushChunk();
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        primary.write(b, off, len);
+        while (len > 0) {
+            if (count == buf.length) flushChunk();
+            int n = Math.min(len, buf.length - count);
+            System.arraycopy(b, off, buf, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        primary.flush();
+    }
+
+    /** Completes the primary stream and lets the archive finish in the background. */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            primary.close();
+        } catch (IOException e) {
+            enqueue(ABORT);
+            throw e;
+        }
+        flushChunk();
+        enqueue(EOF);
+    }
+
+    /** Stops archiving without publishing the file, e.g. when the document could not be completed. */
+    void abort() {
+        if (closed) return;
+        closed = true;
+        enqueue(ABORT);
+    }
+
+    private void flushChunk() {
+        if (count == 0) return;
+        enqueue(Arrays.copyOf(buf, count));
+        count = 0;
+    }
+
+    private void enqueue(byte[] chunk) {
+        if (archiveFailed) return;
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            archiveFailed = true;
+            queue.clear();
+            queue.offer(ABORT);
+        }
+    }
+
+    private void drain(Path archive) {
+        Path tmp = archive.resolveSibling(archive.getFileName() + ".part");
+        IOException failure = null;
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            byte[] chunk;
+            while ((chunk = queue.take()) != EOF && chunk != ABORT) out.write(chunk);
+            if (chunk == ABORT) failure = new IOException("Export aborted before the document was complete");
+        } catch (IOException e) {
+            log.warn("Could not archive {}: {}", archive, e.getMessage());
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new IOException("Interrupted while archiving " + archive);
+        }
+        if (failure != null) {
+            // stop accepting chunks and unblock a writer that may be waiting on a full queue
+            archiveFailed = true;
+            queue.clear();
+            deleteQuietly(tmp);
+            archived.completeExceptionally(failure);
+            return;
+        }
+        try {
+            Files.move(tmp, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            archived.complete(archive);
+        } catch (IOException e) {
+            log.warn("Could not archive {}: {}", archive, e.getMessage());
+            deleteQuietly(tmp);
+            archived.completeExceptionally(e);
+        }
+    }
+
+    private static void deleteQuietly(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException ignored) {
+        }
+    }
+}
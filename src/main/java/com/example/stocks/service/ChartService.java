@@ -1,52 +1,324 @@
 package com.example.stocks.service;
 
-import com.example.stocks.model.StockPrice;
+import com.example.stocks.model.ChartData;
+import com.example.stocks.model.Interval;
+import com.example.stocks.model.QueryResult;
+import com.example.stocks.model.TickerFilter;
+import com.example.stocks.model.TickerSeries;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.knowm.xchart.BitmapEncoder;
 import org.knowm.xchart.XYChart;
 import org.knowm.xchart.XYChartBuilder;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.awt.Graphics2D;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.time.format.DateTimeFormatter;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntToDoubleFunction;
 
 @Service
 public class ChartService {
+    public static final int CHART_WIDTH = 900;
+    public static final int CHART_HEIGHT = 450;
+
     private final StockQueryService queryService;
+    private final StockStore store;
+    private final IndicatorService indicatorService;
+    private final WeightedLruCache<QueryKey, ChartData> cache;
+    private final WeightedLruCache<RenderKey, Rendered> pngCache;
+    private final ExecutorService renderPool;
+    private final MeterRegistry meters;
 
-    public ChartService(StockQueryService queryService) {
+    public ChartService(StockQueryService queryService,
+                        StockStore store,
+                        IndicatorService indicatorService,
+                        @Value("${app.cache.chart-max-bytes:33554432}") long cacheMaxBytes,
+                        @Value("${app.cache.png-max-bytes:16777216}") long pngCacheMaxBytes,
+                        @Value("${app.chart.render-threads:0}") int renderThreads,
+                        MeterRegistry meters) {
         this.queryService = queryService;
+        this.indicatorService = indicatorService;
+        this.meters = meters;
+        this.store = store;
+        this.cache = new WeightedLruCache<>(cacheMaxBytes, ChartService::weigh);
+        this.pngCache = new WeightedLruCache<>(pngCacheMaxBytes, r -> 32L + r.png().length + weigh(r.data()));
+        int threads = renderThreads > 0 ? renderThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger seq = new AtomicInteger();
+        this.renderPool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "chart-render-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public WeightedLruCache<?, ?> getCache() {
+        return cache;
+    }
+
+    public WeightedLruCache<?, ?> getPngCache() {
+        return pngCache;
+    }
+
+    @EventListener
+    public void onSnapshotChanged(SnapshotChangedEvent event) {
+        cache.clear();
+    }
+
+    private static long weigh(ChartData d) {
+        return 64L + 4L * d.size() + (long) d.getTickers().size() * (48L + 8L * d.size());
     }
 
     public Map<String, Object> buildChartData(Set<String> tickers,
-                                              java.time.LocalDate start,
-                                              java.time.LocalDate end) {
-        List<StockPrice> data = queryService.query(tickers, start, end, "date", "asc");
-        Map<String, List<StockPrice>> byTicker = data.stream().collect(Collectors.groupingBy(StockPrice::getTicker));
-        DateTimeFormatter fmt = DateTimeFormatter.ISO_LOCAL_DATE;
-        List<String> categories = data.stream()
-                .map(sp -> sp.getDate().format(fmt))
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+                                              LocalDate start,
+                                              LocalDate end) {
+        return toResponse(buildSeries(tickers, start, end, 0, null));
+    }
 
-        Map<String, List<Double>> series = new LinkedHashMap<>();
-        for (String t : byTicker.keySet().stream().sorted().collect(Collectors.toList())) {
-            List<Double> closes = new ArrayList<>();
-            Map<String, Double> dateToClose = byTicker.get(t).stream()
-                    .sorted(Comparator.comparing(StockPrice::getDate))
-                    .collect(Collectors.toMap(sp -> sp.getDate().format(fmt), sp -> sp.getClose() == null ? null : sp.getClose().doubleValue(), (a, b) -> b, LinkedHashMap::new));
-            for (String c : categories) {
-                closes.add(dateToClose.getOrDefault(c, null));
+    /**
+     * Builds the close-price chart on primitive arrays. When {@code maxPoints > 0} the date axis is
+     * reduced to at most that many categories with {@code lttb} (default) or {@code minmax}: a
+     * single ticker keeps its own selected points, several tickers share one set of bucket dates.
+     */
+    public ChartData buildSeries(Set<String> tickers,
+                                 LocalDate start,
+                                 LocalDate end,
+                                 int maxPoints,
+                                 String downsample) {
+        return buildSeries(TickerFilter.of(tickers), start, end, Interval.DAY, maxPoints, downsample, List.of());
+    }
+
+    /**
+     * Chart of the tickers matched by {@code filter} over {@code interval} bars; long ranges at a
+     * coarse interval cost one point per bar.
+     * Each indicator adds one overlay line per ticker (three for Bollinger bands) named
+     * {@code "<ticker> <code>"} or {@code "<ticker> <code>.<line>"}, computed over the ticker's full
+     * history so the first visible values are already warmed up.
+     */
+    public ChartData buildSeries(TickerFilter filter,
+                                 LocalDate start,
+                                 LocalDate end,
+                                 Interval interval,
+                                 int maxPoints,
+                                 String downsample,
+                                 List<Indicators.Spec> indicators) {
+        boolean minMax = downsample != null && "minmax".equals(downsample.toLowerCase(Locale.ROOT));
+        StringBuilder variant = new StringBuilder(maxPoints <= 0 ? "chart" : "chart " + (minMax ? "minmax " : "lttb ") + maxPoints);
+        if (interval != Interval.DAY) variant.append(' ').append(interval.code());
+        for (Indicators.Spec spec : indicators) variant.append(' ').append(spec.code());
+        QueryKey key = QueryKey.of(store.snapshot(), filter, start, end, variant.toString());
+        String tag = maxPoints <= 0 ? "none" : minMax ? "minmax" : "lttb";
+        return cache.get(key, k -> Timer.builder("stocks.chart.build").tags("downsample", tag, "interval", interval.code())
+                .publishPercentileHistogram().register(meters)
+                .record(() -> compute(k, interval, maxPoints, minMax, indicators)));
+    }
+
+    private ChartData compute(QueryKey key, Interval interval, int maxPoints, boolean minMax,
+                              List<Indicators.Spec> indicators) {
+        QueryResult result = queryService.select(key.filter(), key.startDate(), key.endDate(),
+                "ticker", "asc", interval);
+        if (result.isEmpty()) return ChartData.empty();
+
+        List<String> names = new ArrayList<>();
+        List<TickerSeries> sources = new ArrayList<>();
+        List<int[]> rows = new ArrayList<>();
+        int i = 0;
+        while (i < result.size()) {
+            TickerSeries s = result.series(i);
+            int first = result.row(i);
+            int j = i;
+            while (j < result.size() && result.series(j) == s) j++;
+            int[] r = new int[j - i];
+            int m = 0;
+            for (int row = first; row < first + r.length; row++) {
+                if (!Double.isNaN(s.close(row))) r[m++] = row;
             }
-            series.put(t, closes);
+            names.add(s.getTicker());
+            sources.add(s);
+            rows.add(Arrays.copyOf(r, m));
+            i = j;
+        }
+
+        int tickerCount = names.size();
+        int[][] shown = new int[tickerCount][];
+        int[] days;
+        if (tickerCount == 1) {
+            // a single line keeps its own points and exact dates
+            int[] r = rows.get(0);
+            int[] x = days(sources.get(0), r);
+            if (maxPoints > 0 && r.length > maxPoints) {
+                double[] y = closes(sources.get(0), r);
+                int[] keep = minMax ? Downsampler.minMax(y, maxPoints) : Downsampler.lttb(x, y, maxPoints);
+                int[] kr = new int[keep.length];
+                for (int k = 0; k < keep.length; k++) kr[k] = r[keep[k]];
+                r = kr;
+                x = days(sources.get(0), r);
+            }
+            days = x;
+            shown[0] = r;
+        } else {
+            List<int[]> xs = new ArrayList<>(tickerCount);
+            for (int t = 0; t < tickerCount; t++) xs.add(days(sources.get(t), rows.get(t)));
+            int[] axis = union(xs);
+            if (maxPoints > 0 && axis.length > maxPoints) {
+                // a lone category has no room for a min/max pair
+                days = bucketed(axis, xs, rows, sources, maxPoints, minMax && maxPoints > 1, shown);
+            } else {
+                days = axis;
+                for (int t = 0; t < tickerCount; t++) shown[t] = onDays(rows.get(t), xs.get(t), axis);
+            }
+        }
+
+        double[][] values = new double[tickerCount][];
+        for (int t = 0; t < tickerCount; t++) values[t] = pick(sources.get(t)::close, shown[t]);
+        if (indicators.isEmpty()) return new ChartData(days, names, values);
+
+        List<double[]> all = new ArrayList<>(Arrays.asList(values));
+        for (int t = 0; t < tickerCount; t++) {
+            TickerSeries s = sources.get(t);
+            for (Indicators.Spec spec : indicators) {
+                double[][] lines = indicatorService.compute(s, interval, spec);
+                List<String> outputs = spec.outputs();
+                for (int k = 0; k < lines.length; k++) {
+                    String suffix = outputs.get(k).isEmpty() ? "" : "." + outputs.get(k);
+                    names.add(s.getTicker() + " " + spec.code() + suffix);
+                    double[] perRow = lines[k];
+                    all.add(pick(r -> perRow[r], shown[t]));
+                }
+            }
+        }
+        return new ChartData(days, names, all.toArray(new double[0][]));
+    }
+
+    /**
+     * Down-samples several tickers onto one axis: the union of their days is cut into shared
+     * buckets, each bucket becomes one category (two for min/max: its first and last day) and every
+     * ticker contributes its representative point(s) inside the bucket, so the axis never exceeds
+     * {@code maxPoints} and a ticker only has holes where it has no data for a whole bucket.
+     */
+    private static int[] bucketed(int[] axis, List<int[]> xs, List<int[]> rows, List<TickerSeries> sources,
+                                  int maxPoints, boolean minMax, int[][] shown) {
+        int buckets = minMax ? maxPoints / 2 : maxPoints;
+        int[] bounds = new int[buckets + 1];
+        for (int b = 0; b <= buckets; b++) bounds[b] = (int) ((long) b * axis.length / buckets);
+        // category c of bucket b: slot[b] (and slot[b] + 1 for a min/max bucket spanning two days)
+        int[] slot = new int[buckets + 1];
+        int[] days = new int[minMax ? 2 * buckets : buckets];
+        int c = 0;
+        for (int b = 0; b < buckets; b++) {
+            slot[b] = c;
+            days[c++] = axis[bounds[b]];
+            if (minMax && bounds[b + 1] - bounds[b] > 1) days[c++] = axis[bounds[b + 1] - 1];
+        }
+        slot[buckets] = c;
+        days = Arrays.copyOf(days, c);
+
+        for (int t = 0; t < xs.size(); t++) {
+            int[] x = xs.get(t);
+            int[] r = rows.get(t);
+            // starts[b]: first of this ticker's points inside bucket b
+            int[] starts = new int[buckets + 1];
+            int p = 0;
+            for (int b = 0; b < buckets; b++) {
+                while (p < x.length && x[p] < axis[bounds[b]]) p++;
+                starts[b] = p;
+            }
+            starts[buckets] = x.length;
+            double[] y = closes(sources.get(t), r);
+            int[] s = new int[c];
+            Arrays.fill(s, -1);
+            if (minMax) {
+                int[] keep = Downsampler.minMax(y, starts);
+                for (int b = 0; b < buckets; b++) {
+                    if (keep[2 * b] < 0) continue;
+                    s[slot[b]] = r[keep[2 * b]];
+                    if (slot[b + 1] - slot[b] > 1) s[slot[b] + 1] = r[keep[2 * b + 1]];
+                }
+            } else {
+                int[] keep = Downsampler.lttb(x, y, starts);
+                for (int b = 0; b < buckets; b++) {
+                    if (keep[b] >= 0) s[slot[b]] = r[keep[b]];
+                }
+            }
+            shown[t] = s;
+        }
+        return days;
+    }
+
+    private static int[] days(TickerSeries s, int[] rows) {
+        int[] x = new int[rows.length];
+        for (int k = 0; k < rows.length; k++) x[k] = s.day(rows[k]);
+        return x;
+    }
+
+    private static double[] closes(TickerSeries s, int[] rows) {
+        double[] y = new double[rows.length];
+        for (int k = 0; k < rows.length; k++) y[k] = s.close(rows[k]);
+        return y;
+    }
+
+    // row shown on each axis day, -1 where the ticker has no point on that day
+    private static int[] onDays(int[] rows, int[] x, int[] axis) {
+        int[] shown = new int[axis.length];
+        int p = 0;
+        for (int k = 0; k < axis.length; k++) {
+            while (p < x.length && x[p] < axis[k]) p++;
+            shown[k] = p < x.length && x[p] == axis[k] ? rows[p] : -1;
+        }
+        return shown;
+    }
+
+    private static double[] pick(IntToDoubleFunction perRow, int[] shown) {
+        double[] v = new double[shown.length];
+        for (int k = 0; k < shown.length; k++) v[k] = shown[k] < 0 ? Double.NaN : perRow.applyAsDouble(shown[k]);
+        return v;
+    }
+
+    // sorted, distinct union of already sorted day arrays
+    private static int[] union(List<int[]> xs) {
+        int total = 0;
+        for (int[] x : xs) total += x.length;
+        int[] all = new int[total];
+        int n = 0;
+        for (int[] x : xs) {
+            System.arraycopy(x, 0, all, n, x.length);
+            n += x.length;
+        }
+        Arrays.sort(all);
+        int d = 0;
+        for (int k = 0; k < n; k++) {
+            if (d == 0 || all[d - 1] != all[k]) all[d++] = all[k];
+        }
+        return Arrays.copyOf(all, d);
+    }
+
+    public Map<String, Object> toResponse(ChartData data) {
+        List<String> categories = new ArrayList<>(data.size());
+        for (int day : data.getDays()) categories.add(LocalDate.ofEpochDay(day).toString());
+        Map<String, List<Double>> series = new LinkedHashMap<>();
+        for (int t = 0; t < data.getTickers().size(); t++) {
+            double[] v = data.getValues()[t];
+            List<Double> closes = new ArrayList<>(v.length);
+            for (double d : v) closes.add(Double.isNaN(d) ? null : d);
+            series.put(data.getTickers().get(t), closes);
         }
         Map<String, Object> response = new LinkedHashMap<>();
         response.put("categories", categories);
@@ -55,33 +327,86 @@ public class ChartService {
     }
 
     public byte[] renderLineChartPng(String title,
-                                     Map<String, Object> chartData) throws IOException {
-        @SuppressWarnings("unchecked")
-        List<String> categories = (List<String>) chartData.get("categories");
-        @SuppressWarnings("unchecked")
-        Map<String, List<Double>> series = (Map<String, List<Double>>) chartData.get("series");
+                                     ChartData chartData) throws IOException {
+        return renderLineChartPng(title, chartData, CHART_WIDTH, CHART_HEIGHT);
+    }
+
+    /**
+     * Returns the PNG for this chart, from cache when the same data, size and title were rendered
+     * before. Entries are found by the data's fingerprint and keep the data they were drawn from,
+     * so a fingerprint collision is rendered afresh rather than served another chart. Rasterization runs on the bounded render pool, so concurrent exports queue for a
+     * render slot instead of all encoding images at once on request threads.
+     */
+    public byte[] renderLineChartPng(String title,
+                                     ChartData chartData,
+                                     int width,
+                                     int height) throws IOException {
+        RenderKey key = new RenderKey(chartData.fingerprint(), width, height, title);
+        try {
+            Rendered cached = pngCache.get(key, k -> new Rendered(chartData, rasterize(title, chartData, width, height)));
+            if (cached.data().contentEquals(chartData)) return cached.png();
+            meters.counter("stocks.chart.render.collisions").increment();
+            return rasterize(title, chartData, width, height);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private byte[] rasterize(String title, ChartData chartData, int width, int height) {
+        // wait covers the time spent queued for a render slot, render the rasterization itself
+        Timer.Sample queued = Timer.start(meters);
+        Future<byte[]> png = renderPool.submit(() -> {
+            queued.stop(meters.timer("stocks.chart.render.wait"));
+            Timer.Sample sample = Timer.start(meters);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            BitmapEncoder.saveBitmap(buildChart(title, chartData, width, height), baos, BitmapEncoder.BitmapFormat.PNG);
+            sample.stop(Timer.builder("stocks.chart.render").publishPercentileHistogram().register(meters));
+            return baos.toByteArray();
+        });
+        try {
+            return png.get();
+        } catch (InterruptedException e) {
+            png.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Chart rendering interrupted"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw new UncheckedIOException(io);
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(cause);
+        }
+    }
 
-        XYChart chart = new XYChartBuilder().width(900).height(450).title(title).xAxisTitle("Date").yAxisTitle("Close").build();
+    /** Draws the chart as vector graphics, e.g. onto a PDF template. */
+    public void drawLineChart(String title, ChartData chartData, Graphics2D g, int width, int height) {
+        buildChart(title, chartData, width, height).paint(g, width, height);
+    }
+
+    private XYChart buildChart(String title, ChartData chartData, int width, int height) {
+        XYChart chart = new XYChartBuilder().width(width).height(height).title(title).xAxisTitle("Date").yAxisTitle("Close").build();
         chart.getStyler().setLegendVisible(true);
         chart.getStyler().setChartTitleVisible(true);
         chart.getStyler().setXAxisLabelRotation(45);
         chart.getStyler().setPlotContentSize(.95);
         chart.getStyler().setMarkerSize(4);
 
-        double[] x = new double[categories.size()];
-        for (int i = 0; i < categories.size(); i++) x[i] = i;
+        double[] x = new double[chartData.size()];
+        for (int i = 0; i < x.length; i++) x[i] = i;
 
-        for (Map.Entry<String, List<Double>> e : series.entrySet()) {
-            List<Double> yList = e.getValue();
-            double[] y = new double[yList.size()];
-            for (int i = 0; i < yList.size(); i++) y[i] = yList.get(i) == null ? Double.NaN : yList.get(i);
-            chart.addSeries(e.getKey(), x, y);
+        for (int t = 0; t < chartData.getTickers().size(); t++) {
+            chart.addSeries(chartData.getTickers().get(t), x, chartData.getValues()[t]);
         }
+        return chart;
+    }
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        BitmapEncoder.saveBitmap(chart, baos, BitmapEncoder.BitmapFormat.PNG);
-        return baos.toByteArray();
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
     }
-}
 
+    private record RenderKey(long fingerprint, int width, int height, String title) {
+    }
 
+    private record Rendered(ChartData data, byte[] png) {
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.TickerSeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Columnar binary copy of each parsed CSV, stored as {@code <name>.csv.bin} in the cache
+ * directory. An entry is used only while the CSV's absolute path, modification time and size
+ * still match the ones recorded when it was written; otherwise the CSV is parsed again.
+ *
+ * <p>Layout (little-endian): magic, version, source mtime (ns), source size, header length; then
+ * the header with the source path and, per ticker, its name, row count and block offset; then one
+ * 8-byte aligned block per ticker holding the open, high, low, close, volume and day columns.
+ * Each block is memory-mapped and bulk-copied into the series arrays.
+ */
+final class CsvBinaryCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CsvBinaryCache.class);
+
+    private static final int MAGIC = 0x31424353; // "SCB1"
+    // 2: rows with blank numbers are dropped instead of kept as NaN
+    private static final int VERSION = 2;
+    private static final int PREAMBLE = 4 + 4 + 8 + 8 + 4;
+    private static final int ROW_BYTES = 5 * 8 + 4;
+    private static final String SUFFIX = ".bin";
+
+    private final Path dir;
+
+    CsvBinaryCache(Path dir) {
+        this.dir = dir;
+    }
+
+    Path getDir() {
+        return dir;
+    }
+
+    /** @return the cached series, or {@code null} when there is no entry matching {@code attrs} */
+    Map<String, TickerSeries> read(Path csv, BasicFileAttributes attrs) {
+        Path bin = entry(csv);
+        if (!Files.isRegularFile(bin)) return null;
+        try (FileChannel ch = FileChannel.open(bin, StandardOpenOption.READ)) {
+            if (ch.size() < PREAMBLE) return null;
+            ByteBuffer pre = map(ch, 0, PREAMBLE);
+            if (pre.getInt() != MAGIC || pre.getInt() != VERSION
+                    || pre.getLong() != mtime(attrs) || pre.getLong() != attrs.size()) {
+                return null;
+            }
+            int headerLength = pre.getInt();
+            if (headerLength < 8 || PREAMBLE + (long) headerLength > ch.size()) throw new IOException("truncated header");
+            ByteBuffer header = map(ch, PREAMBLE, headerLength);
+            if (!string(header).equals(key(csv))) return null;
+            int count = header.getInt();
+            // every entry takes at least 16 header bytes; a larger count is corruption, not a reason to allocate
+            if (count < 0 || count > header.remaining() / 16) throw new IOException("bad ticker count " + count);
+            Map<String, TickerSeries> series = new HashMap<>(count * 2);
+            for (int t = 0; t < count; t++) {
+                String ticker = string(header);
+                int n = header.getInt();
+                long offset = header.getLong();
+                series.put(ticker, readBlock(ch, offset, ticker, n));
+            }
+            return series;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable cache entry {}: {}", bin, e.toString());
+            return null;
+        }
+    }
+
+    private static TickerSeries readBlock(FileChannel ch, long offset, String ticker, int n) throws IOException {
+        if (n < 0 || offset < PREAMBLE) throw new IOException("bad block for " + ticker);
+        // an empty block written last sits at an aligned offset past the end of the file; mapping it would grow the file
+        if (n == 0) {
+            return TickerSeries.of(ticker, new int[0], new double[0], new double[0], new double[0], new double[0],
+                    new long[0]);
+        }
+        if (offset + (long) n * ROW_BYTES > ch.size()) throw new IOException("truncated block for " + ticker);
+        ByteBuffer b = map(ch, offset, (long) n * ROW_BYTES);
+        double[] open = new double[n];
+        double[] high = new double[n];
+        double[] low = new double[n];
+        double[] close = new double[n];
+        long[] volume = new long[n];
+        int[] days = new int[n];
+        b.asDoubleBuffer().get(open);
+        b.position(8 * n);
+        b.asDoubleBuffer().get(high);
+        b.position(16 * n);
+        b.asDoubleBuffer().get(low);
+        b.position(24 * n);
+        b.asDoubleBuffer().get(close);
+        b.position(32 * n);
+        b.asLongBuffer().get(volume);
+        b.position(40 * n);
+        b.asIntBuffer().get(days);
+        return TickerSeries.of(ticker, days, open, high, low, close, volume);
+    }
+
+    /** Stores {@code series} for {@code csv} as it was when {@code attrs} were read; failures are only logged. */
+    void write(Path csv, BasicFileAttributes attrs, Map<String, TickerSeries> series) {
+        Path bin = entry(csv);
+        for (TickerSeries s : series.values()) {
+            // each block is built in one heap buffer, which an int indexes
+            if ((long) s.size() * ROW_BYTES > Integer.MAX_VALUE) {
+                log.warn("Not caching {}: {} has too many rows ({})", csv, s.getTicker(), s.size());
+                return;
+            }
+        }
+        Path tmp = null;
+        try {
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, csv.getFileName().toString(), ".tmp");
+            List<String> tickers = new ArrayList<>(series.keySet());
+            byte[] path = key(csv).getBytes(StandardCharsets.UTF_8);
+            int headerLength = 4 + path.length + 4;
+            for (String t : tickers) headerLength += 4 + t.getBytes(StandardCharsets.UTF_8).length + 4 + 8;
+
+            ByteBuffer head = ByteBuffer.allocate(PREAMBLE + headerLength).order(ByteOrder.LITTLE_ENDIAN);
+            head.putInt(MAGIC).putInt(VERSION).putLong(mtime(attrs)).putLong(attrs.size()).putInt(headerLength);
+            head.putInt(path.length).put(path).putInt(tickers.size());
+            long offset = align(PREAMBLE + headerLength);
+            for (String t : tickers) {
+                byte[] name = t.getBytes(StandardCharsets.UTF_8);
+                int n = series.get(t).size();
+                head.putInt(name.length).put(name).putInt(n).putLong(offset);
+                offset = align(offset + (long) n * ROW_BYTES);
+            }
+            head.flip();
+
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(ch, head);
+                long pos = align(PREAMBLE + headerLength);
+                for (String t : tickers) {
+                    TickerSeries s = series.get(t);
+                    writeFully(ch.position(pos), block(s));
+                    pos = align(pos + (long) s.size() * ROW_BYTES);
+                }
+            }
+            Files.move(tmp, bin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write cache entry {}: {}", bin, e.getMessage());
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer block(TickerSeries s) {
+        int n = s.size();
+        ByteBuffer b = ByteBuffer.allocate(Math.toIntExact((long) n * ROW_BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < n; i++) b.putDouble(s.open(i));
+        for (int i = 0; i < n; i++) b.putDouble(s.high(i));
+        for (int i = 0; i < n; i++) b.putDouble(s.low(i));
+        for (int i = 0; i < n; i++) b.putDouble(s.close(i));
+        for (int i = 0; i < n; i++) b.putLong(s.volume(i));
+        for (int i = 0; i < n; i++) b.putInt(s.day(i));
+        return b.flip();
+    }
+
+    /** Deletes entries (and stray temp files) of CSVs that are not in {@code csvs}. */
+    void retain(Collection<Path> csvs) {
+        if (!Files.isDirectory(dir)) return;
+        Set<String> keep = new HashSet<>();
+        for (Path p : csvs) keep.add(entry(p).getFileName().toString());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.{bin,tmp}")) {
+            for (Path p : files) {
+                if (!keep.contains(p.getFileName().toString())) Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            log.warn("Could not clean cache directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private Path entry(Path csv) {
+        return dir.resolve(csv.getFileName() + SUFFIX);
+    }
+
+    private static String key(Path csv) {
+        return csv.toAbsolutePath().normalize().toString();
+    }
+
+    private static long mtime(BasicFileAttributes attrs) {
+        return attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+    }
+
+    private static long align(long pos) {
+        return (pos + 7) & ~7L;
+    }
+
+    private static MappedByteBuffer map(FileChannel ch, long pos, long len) throws IOException {
+        MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+        b.order(ByteOrder.LITTLE_ENDIAN);
+        return b;
+    }
+
+    private static String string(ByteBuffer b) {
+        int length = b.getInt();
+        if (length < 0 || length > b.remaining()) throw new BufferUnderflowException();
+        byte[] bytes = new byte[length];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) ch.write(b);
+    }
+}
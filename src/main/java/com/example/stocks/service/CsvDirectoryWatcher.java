@@ -0,0 +1,112 @@
+package com.example.stocks.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches {@code app.csv.root} and hands every created, modified or deleted CSV to
+ * {@link StockStore#reloadFile(Path)}. Events are collected for a short quiet period first so a
+ * file that is still being written is parsed once, not once per write.
+ */
+@Component
+public class CsvDirectoryWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(CsvDirectoryWatcher.class);
+
+    private final CsvStockLoader loader;
+    private final StockStore store;
+    private final boolean enabled;
+    private final long debounceMillis;
+    private WatchService watchService;
+    private Thread thread;
+
+    public CsvDirectoryWatcher(CsvStockLoader loader,
+                               StockStore store,
+                               @Value("${app.csv.watch:true}") boolean enabled,
+                               @Value("${app.csv.watch-debounce-ms:500}") long debounceMillis) {
+        this.loader = loader;
+        this.store = store;
+        this.enabled = enabled;
+        this.debounceMillis = debounceMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        Path root = loader.getRoot();
+        if (!enabled || !Files.isDirectory(root)) return;
+        try {
+            watchService = root.getFileSystem().newWatchService();
+            root.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        } catch (IOException e) {
+            log.warn("CSV hot reload disabled, cannot watch {}: {}", root, e.getMessage());
+            return;
+        }
+        thread = new Thread(() -> run(root), "csv-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) watchService.close();
+        if (thread != null) thread.interrupt();
+    }
+
+    private void run(Path root) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow = drain(watchService.take(), root, changed);
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= drain(key, root, changed);
+                }
+                try {
+                    if (overflow) {
+                        store.load();
+                    } else {
+                        for (Path p : changed) store.reloadFile(p);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("CSV reload failed: {}", e.getMessage(), e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean drain(WatchKey key, Path root, Set<Path> changed) {
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            Path p = root.resolve((Path) event.context());
+            if (loader.isCsv(p)) changed.add(p);
+        }
+        key.reset();
+        return overflow;
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.TickerSeries;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Byte-level RFC 4180 parser for price CSVs. The file is memory-mapped and numbers, dates and
+ * tickers are decoded straight from the mapped bytes; no line or field strings are created except
+ * for each distinct ticker. The date layout is detected on the first row and only re-detected when
+ * a row does not match it. A row whose date or ticker cannot be read, or whose price or volume
+ * field is blank or not a number, is dropped and counted; a column missing from the header reads
+ * as {@code NaN} (volume 0).
+ *
+ * <p>Not thread-safe; use one instance per file.
+ */
+final class CsvFileParser {
+
+    /** Mapping window; files larger than this are parsed window by window on record boundaries. */
+    private static final long WINDOW = 1L << 30;
+    private static final int MAX_FIELDS = 64;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final int FMT_UNKNOWN = 0;
+    private static final int FMT_ISO = 1;        // yyyy-MM-dd
+    private static final int FMT_BASIC = 2;      // yyyyMMdd
+    private static final int FMT_DMY = 3;        // dd/MM/yyyy
+
+    private final Map<String, TickerSeries.Builder> builders;
+    private final int[] starts = new int[MAX_FIELDS];
+    private final int[] ends = new int[MAX_FIELDS];
+    private final boolean[] escaped = new boolean[MAX_FIELDS];
+    private int fieldCount;
+
+    private boolean headerDone;
+    private int dateCol = -1, tickerCol = -1, openCol = -1, highCol = -1, lowCol = -1, closeCol = -1, volumeCol = -1;
+    private int dateFormat = FMT_UNKNOWN;
+    private byte[] lastTickerBytes = new byte[0];
+    private TickerSeries.Builder lastBuilder;
+
+    private long rows;
+    private long dropped;
+
+    CsvFileParser(Map<String, TickerSeries.Builder> builders) {
+        this.builders = builders;
+    }
+
+    long rows() { return rows; }
+    long dropped() { return dropped; }
+
+    void parse(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long offset = 0;
+            while (offset < size) {
+                long len = Math.min(WINDOW, size - offset);
+                boolean last = offset + len == size;
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, offset, len);
+                int consumed = parseWindow(buf, (int) len, last);
+                if (consumed == 0) {
+                    throw new IOException("CSV record larger than " + WINDOW + " bytes in " + path);
+                }
+                if (!headerDone || dateCol < 0 || tickerCol < 0) return;
+                offset += consumed;
+            }
+        }
+    }
+
+    /** Parses every complete record in the window and returns how many bytes they spanned. */
+    private int parseWindow(MappedByteBuffer buf, int limit, boolean last) {
+        int pos = 0;
+        while (pos < limit) {
+            int next = splitRecord(buf, pos, limit, last);
+            if (next < 0) return pos;
+            if (fieldCount > 0) {
+                if (!headerDone) {
+                    readHeader(buf);
+                    if (dateCol < 0 || tickerCol < 0) return limit;
+                } else {
+                    readRow(buf);
+                }
+            }
+            pos = next;
+        }
+        return pos;
+    }
+
+    /**
+     * Splits the record starting at {@code pos} into {@link #starts}/{@link #ends}, with quotes
+     * removed. Returns the position after the record, or -1 when it continues past the window.
+     */
+    private int splitRecord(MappedByteBuffer buf, int pos, int limit, boolean last) {
+        fieldCount = 0;
+        int p = pos;
+        boolean blank = true;
+        while (true) {
+            int start, end;
+            boolean esc = false;
+            if (p < limit && buf.get(p) == '"') {
+                start = ++p;
+                while (true) {
+                    if (p >= limit) {
+                        if (!last) return -1;
+                        end = p;
+                        break;
+                    }
+                    if (buf.get(p) == '"') {
+                        if (p + 1 < limit && buf.get(p + 1) == '"') {
+                            esc = true;
+                            p += 2;
+                            continue;
+                        }
+                        if (p + 1 >= limit && !last) return -1;
+                        end = p++;
+                        break;
+                    }
+                    p++;
+                }
+                while (p < limit && buf.get(p) != ',' && buf.get(p) != '\n') p++;
+                blank = false;
+            } else {
+                start = p;
+                while (p < limit && buf.get(p) != ',' && buf.get(p) != '\n') p++;
+                end = p;
+                if (end > start && buf.get(end - 1) == '\r') end--;
+                if (end > start) blank = false;
+            }
+            if (fieldCount < MAX_FIELDS) {
+                starts[fieldCount] = start;
+                ends[fieldCount] = end;
+                escaped[fieldCount] = esc;
+                fieldCount++;
+            }
+            if (p >= limit) {
+                if (!last) return -1;
+                break;
+            }
+            byte b = buf.get(p++);
+            if (b == '\n') break;
+            blank = false;
+        }
+        if (blank) fieldCount = 0;
+        return p;
+    }
+
+    private void readHeader(MappedByteBuffer buf) {
+        headerDone = true;
+        for (int i = 0; i < fieldCount; i++) {
+            String raw = string(buf, i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+            switch (raw) {
+                case "date", "portdate" -> dateCol = i;
+                case "ticker", "portid" -> tickerCol = i;
+                case "open", "opening" -> openCol = i;
+                case "high" -> highCol = i;
+                case "low" -> lowCol = i;
+                case "close", "closing" -> closeCol = i;
+                case "volume" -> volumeCol = i;
+                default -> { }
+            }
+        }
+    }
+
+    private void readRow(MappedByteBuffer buf) {
+        try {
+            int day = parseDay(buf, dateCol);
+            TickerSeries.Builder b = builder(buf, tickerCol);
+            if (day == Integer.MIN_VALUE || b == null) {
+                dropped++;
+                return;
+            }
+            b.add(day,
+                    parseDouble(buf, openCol),
+                    parseDouble(buf, highCol),
+                    parseDouble(buf, lowCol),
+                    parseDouble(buf, closeCol),
+                    parseLong(buf, volumeCol));
+            rows++;
+        } catch (NumberFormatException e) {
+            dropped++;
+        }
+    }
+
+    private TickerSeries.Builder builder(MappedByteBuffer buf, int col) {
+        if (col >= fieldCount) return null;
+        int s = starts[col], e = ends[col];
+        while (s < e && buf.get(s) == ' ') s++;
+        while (e > s && buf.get(e - 1) == ' ') e--;
+        int len = e - s;
+        if (len == 0) return null;
+        if (!escaped[col] && len == lastTickerBytes.length && lastBuilder != null) {
+            boolean same = true;
+            for (int i = 0; i < len; i++) {
+                if (buf.get(s + i) != lastTickerBytes[i]) {
+                    same = false;
+                    break;
+                }
+            }
+            if (same) return lastBuilder;
+        }
+        byte[] bytes = new byte[len];
+        buf.get(s, bytes);
+        String ticker = new String(bytes, StandardCharsets.UTF_8);
+        if (escaped[col]) ticker = ticker.replace("\"\"", "\"");
+        lastTickerBytes = bytes;
+        lastBuilder = builders.computeIfAbsent(ticker, TickerSeries::builder);
+        return lastBuilder;
+    }
+
+    private String string(MappedByteBuffer buf, int col) {
+        byte[] bytes = new byte[ends[col] - starts[col]];
+        buf.get(starts[col], bytes);
+        String s = new String(bytes, StandardCharsets.UTF_8);
+        return escaped[col] ? s.replace("\"\"", "\"") : s;
+    }
+
+    private int parseDay(MappedByteBuffer buf, int col) {
+        if (col >= fieldCount) return Integer.MIN_VALUE;
+        int s = starts[col], e = ends[col];
+        while (s < e && buf.get(s) == ' ') s++;
+        while (e > s && buf.get(e - 1) == ' ') e--;
+        int day = parseDay(buf, s, e, dateFormat);
+        if (day == Integer.MIN_VALUE) {
+            int detected = detectFormat(buf, s, e);
+            if (detected != dateFormat && detected != FMT_UNKNOWN) {
+                dateFormat = detected;
+                day = parseDay(buf, s, e, detected);
+            }
+        }
+        return day;
+    }
+
+    private static int detectFormat(MappedByteBuffer buf, int s, int e) {
+        int len = e - s;
+        if (len == 10 && buf.get(s + 4) == '-' && buf.get(s + 7) == '-') return FMT_ISO;
+        if (len == 10 && buf.get(s + 2) == '/' && buf.get(s + 5) == '/') return FMT_DMY;
+        if (len == 8) return FMT_BASIC;
+        return FMT_UNKNOWN;
+    }
+
+    private static int parseDay(MappedByteBuffer buf, int s, int e, int format) {
+        int y, m, d;
+        switch (format) {
+            case FMT_ISO -> {
+                if (e - s != 10 || buf.get(s + 4) != '-' || buf.get(s + 7) != '-') return Integer.MIN_VALUE;
+                y = digits(buf, s, 4);
+                m = digits(buf, s + 5, 2);
+                d = digits(buf, s + 8, 2);
+            }
+            case FMT_BASIC -> {
+                if (e - s != 8) return Integer.MIN_VALUE;
+                y = digits(buf, s, 4);
+                m = digits(buf, s + 4, 2);
+                d = digits(buf, s + 6, 2);
+            }
+            case FMT_DMY -> {
+                if (e - s != 10 || buf.get(s + 2) != '/' || buf.get(s + 5) != '/') return Integer.MIN_VALUE;
+                d = digits(buf, s, 2);
+                m = digits(buf, s + 3, 2);
+                y = digits(buf, s + 6, 4);
+            }
+            default -> {
+                return Integer.MIN_VALUE;
+            }
+        }
+        if (y < 0 || m < 1 || m > 12 || d < 1 || d > lengthOfMonth(y, m)) return Integer.MIN_VALUE;
+        return (int) epochDay(y, m, d);
+    }
+
+    private static int digits(MappedByteBuffer buf, int s, int n) {
+        int v = 0;
+        for (int i = 0; i < n; i++) {
+            int c = buf.get(s + i) - '0';
+            if (c < 0 || c > 9) return -1;
+            v = v * 10 + c;
+        }
+        return v;
+    }
+
+    private static boolean isLeap(int y) {
+        return (y & 3) == 0 && (y % 100 != 0 || y % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int y, int m) {
+        return switch (m) {
+            case 2 -> isLeap(y) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // same arithmetic as LocalDate.toEpochDay, for non-negative years
+    private static long epochDay(int y, int m, int d) {
+        long total = 365L * y + (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        total += (367 * m - 362) / 12;
+        total += d - 1;
+        if (m > 2) {
+            total--;
+            if (!isLeap(y)) total--;
+        }
+        return total - 719528;
+    }
+
+    private double parseDouble(MappedByteBuffer buf, int col) {
+        if (col < 0 || col >= fieldCount) return Double.NaN;
+        int s = starts[col], e = ends[col];
+        while (s < e && buf.get(s) == ' ') s++;
+        while (e > s && buf.get(e - 1) == ' ') e--;
+        if (s == e) throw new NumberFormatException("blank number");
+        int p = s;
+        boolean neg = false;
+        byte c = buf.get(p);
+        if (c == '-' || c == '+') {
+            neg = c == '-';
+            p++;
+        }
+        long mantissa = 0;
+        int scale = 0;
+        int digitCount = 0;
+        boolean dot = false;
+        for (; p < e; p++) {
+            c = buf.get(p);
+            if (c >= '0' && c <= '9') {
+                if (mantissa >= (1L << 53) / 10) return slowDouble(buf, s, e);
+                mantissa = mantissa * 10 + (c - '0');
+                digitCount++;
+                if (dot) scale++;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return slowDouble(buf, s, e);
+            }
+        }
+        if (digitCount == 0) return slowDouble(buf, s, e);
+        if (scale >= POW10.length) return slowDouble(buf, s, e);
+        // mantissa and 10^scale are both exact doubles, so the division is correctly rounded
+        double v = scale == 0 ? mantissa : mantissa / POW10[scale];
+        return neg ? -v : v;
+    }
+
+    private static double slowDouble(MappedByteBuffer buf, int s, int e) {
+        byte[] bytes = new byte[e - s];
+        buf.get(s, bytes);
+        return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+    }
+
+    private long parseLong(MappedByteBuffer buf, int col) {
+        if (col < 0 || col >= fieldCount) return 0L;
+        int s = starts[col], e = ends[col];
+        while (s < e && buf.get(s) == ' ') s++;
+        while (e > s && buf.get(e - 1) == ' ') e--;
+        if (s == e) throw new NumberFormatException("blank number");
+        boolean neg = buf.get(s) == '-';
+        if (neg || buf.get(s) == '+') s++;
+        if (s == e || e - s > 18) throw new NumberFormatException("invalid volume");
+        long v = 0;
+        for (int p = s; p < e; p++) {
+            int c = buf.get(p) - '0';
+            if (c < 0 || c > 9) throw new NumberFormatException("invalid volume");
+            v = v * 10 + c;
+        }
+        return neg ? -v : v;
+    }
+}
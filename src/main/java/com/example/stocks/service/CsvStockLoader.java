@@ -1,141 +1,268 @@
 package com.example.stocks.service;
 
-import com.example.stocks.model.StockPrice;
+import com.example.stocks.config.ExecutionMode;
+import com.example.stocks.model.Listing;
+import com.example.stocks.model.TickerSeries;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Service
 public class CsvStockLoader {
 
+    private static final Logger log = LoggerFactory.getLogger(CsvStockLoader.class);
+
     private final String csvRoot;
+    private final String referenceFile;
+    private final ExecutionMode execution;
+    private final MeterRegistry meters;
+    private final CsvBinaryCache binaryCache;
 
-    public CsvStockLoader(@Value("${app.csv.root:.}") String csvRoot) {
+    public CsvStockLoader(@Value("${app.csv.root:.}") String csvRoot,
+                          @Value("${app.csv.reference-file:msequity.csv}") String referenceFile,
+                          @Value("${app.csv.cache:true}") boolean cacheEnabled,
+                          @Value("${app.csv.cache-dir:}") String cacheDir,
+                          ExecutionMode execution,
+                          MeterRegistry meters) {
         this.csvRoot = csvRoot;
+        this.referenceFile = referenceFile;
+        this.execution = execution;
+        this.meters = meters;
+        this.binaryCache = !cacheEnabled ? null
+                : new CsvBinaryCache(cacheDir.isBlank() ? getRoot().resolve(".stockcache") : Paths.get(cacheDir));
+    }
+
+    public Path getRoot() {
+        return Paths.get(csvRoot);
+    }
+
+    public boolean isCsv(Path p) {
+        return p.toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+
+    /** True for the reference table ({@code app.csv.reference-file}), which holds no prices. */
+    public boolean isReference(Path p) {
+        return p.getFileName().toString().equalsIgnoreCase(referenceFile);
     }
 
-    public List<StockPrice> loadAll() {
-        Path root = Paths.get(csvRoot);
+    /** Price CSVs in {@link #getRoot()}, in file name order; the reference table is not included. */
+    public List<Path> listCsvFiles() {
+        Path root = getRoot();
         if (!Files.exists(root)) {
             return Collections.emptyList();
         }
-
-        List<Path> csvFiles;
         try (Stream<Path> stream = Files.list(root)) {
-            csvFiles = stream.filter(p -> p.toString().toLowerCase(Locale.ROOT).endsWith(".csv")).collect(Collectors.toList());
+            return stream.filter(p -> Files.isRegularFile(p) && isCsv(p) && !isReference(p))
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .collect(Collectors.toList());
         } catch (IOException e) {
             return Collections.emptyList();
         }
-
-        List<StockPrice> all = new ArrayList<>();
-        for (Path p : csvFiles) {
-            all.addAll(loadFile(p));
-        }
-        return all;
     }
 
-    private List<StockPrice> loadFile(Path path) {
-        List<StockPrice> rows = new ArrayList<>();
-        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
-            String headerLine = br.readLine();
-            if (headerLine == null) return rows;
-            String[] headers = splitCsv(headerLine);
-            Map<String, Integer> idx = mapHeaderIndexes(headers);
-            String line;
-            DateTimeFormatter[] fmts = new DateTimeFormatter[]{
-                    DateTimeFormatter.ISO_LOCAL_DATE,
-                    DateTimeFormatter.ofPattern("yyyyMMdd"),
-                    DateTimeFormatter.ofPattern("dd/MM/yyyy")
-            };
-            while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty()) continue;
-                String[] cols = splitCsv(line);
-                try {
-                    StockPrice sp = new StockPrice();
-                    sp.setDate(parseDate(get(cols, idx, "date"), fmts));
-                    sp.setTicker(safe(get(cols, idx, "ticker")));
-                    sp.setOpen(parseDec(get(cols, idx, "open")));
-                    sp.setHigh(parseDec(get(cols, idx, "high")));
-                    sp.setLow(parseDec(get(cols, idx, "low")));
-                    sp.setClose(parseDec(get(cols, idx, "close")));
-                    sp.setVolume(parseLong(get(cols, idx, "volume")));
-                    rows.add(sp);
-                } catch (Exception ignore) {
-                    // skip bad row
-                }
+    /** Newest modification time (epoch millis) of the price CSVs and the reference table; 0 when there are none. */
+    public long newestModified() {
+        List<Path> files = new ArrayList<>(listCsvFiles());
+        files.add(getRoot().resolve(referenceFile));
+        long newest = 0;
+        for (Path p : files) {
+            try {
+                newest = Math.max(newest, Files.getLastModifiedTime(p).toMillis());
+            } catch (IOException ignored) {
+                // missing reference table or a file removed since the listing
             }
-        } catch (IOException ignored) {
         }
-        return rows;
+        return newest;
     }
 
-    private Map<String, Integer> mapHeaderIndexes(String[] headers) {
-        Map<String, Integer> m = new HashMap<>();
-        for (int i = 0; i < headers.length; i++) {
-            String raw = headers[i].trim().toLowerCase(Locale.ROOT);
-            // normalize known aliases to the expected canonical names
-            String h = switch (raw) {
-                case "portdate" -> "date";
-                case "portid" -> "ticker";
-                case "opening" -> "open";
-                case "closing" -> "close";
-                default -> raw;
-            };
-            m.put(h, i);
+    /**
+     * Loads several CSVs at once: one file per core, or one virtual thread per file in virtual
+     * mode. The result is keyed by file name in the same order as {@code files}. {@code files} is
+     * taken as the complete set: binary cache entries of any other CSV are deleted.
+     */
+    public Map<String, Map<String, TickerSeries>> loadFiles(List<Path> files) {
+        if (binaryCache != null) binaryCache.retain(files);
+        List<Map<String, TickerSeries>> parsed = execution.isVirtual()
+                ? loadOnVirtualThreads(files)
+                : files.parallelStream().map(this::loadFile).collect(Collectors.toList());
+        Map<String, Map<String, TickerSeries>> result = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            result.put(files.get(i).getFileName().toString(), parsed.get(i));
         }
-        return m;
+        return result;
     }
 
-    private String[] splitCsv(String line) {
-        // simple split, assumes no embedded commas in quotes for provided data
-        return line.split(",");
+    private List<Map<String, TickerSeries>> loadOnVirtualThreads(List<Path> files) {
+        List<Future<Map<String, TickerSeries>>> futures = new ArrayList<>(files.size());
+        for (Path f : files) futures.add(execution.blockingExecutor().submit(() -> loadFile(f)));
+        List<Map<String, TickerSeries>> parsed = new ArrayList<>(files.size());
+        for (Future<Map<String, TickerSeries>> f : futures) {
+            try {
+                parsed.add(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading CSV files", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to load CSV files", e.getCause());
+            }
+        }
+        return parsed;
     }
 
-    private String get(String[] cols, Map<String, Integer> idx, String key) {
-        Integer i = idx.get(key);
-        if (i == null || i < 0 || i >= cols.length) return null;
-        return cols[i];
+    /**
+     * Parses one CSV into per-ticker series. Files without date and ticker columns yield no rows;
+     * rows with an unparseable date or ticker, or a blank or unparseable number, are dropped and
+     * counted. A file whose path, modification time and size match its binary cache entry is read
+     * from that entry instead.
+     */
+    public Map<String, TickerSeries> loadFile(Path path) {
+        Map<String, TickerSeries.Builder> builders = new HashMap<>();
+        CsvFileParser parser = new CsvFileParser(builders);
+        String file = path.getFileName().toString();
+        Timer.Sample sample = Timer.start(meters);
+        BasicFileAttributes attrs;
+        try {
+            // attributes are taken before parsing, so a write racing the parse invalidates the entry
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            if (binaryCache != null) {
+                Map<String, TickerSeries> cached = binaryCache.read(path, attrs);
+                if (cached != null) {
+                    sample.stop(meters.timer("stocks.csv.load", "outcome", "cached"));
+                    return cached;
+                }
+            }
+            parser.parse(path);
+        } catch (IOException e) {
+            sample.stop(meters.timer("stocks.csv.load", "outcome", "error"));
+            log.warn("Cannot read {}: {}", path, e.getMessage());
+            return Collections.emptyMap();
+        }
+        sample.stop(meters.timer("stocks.csv.load", "outcome", "ok"));
+        DistributionSummary.builder("stocks.csv.rows").register(meters).record(parser.rows());
+        meters.counter("stocks.csv.rows.dropped").increment(parser.dropped());
+        if (parser.dropped() > 0) {
+            log.warn("Dropped {} malformed rows from {}", parser.dropped(), file);
+        }
+        Map<String, TickerSeries> series = new HashMap<>();
+        builders.forEach((ticker, b) -> {
+            if (b.size() > 0) series.put(ticker, b.build());
+        });
+        if (binaryCache != null) binaryCache.write(path, attrs, series);
+        return series;
     }
 
-    private String safe(String s) {
-        return s == null ? null : s.trim();
+    /**
+     * Reads the reference table ({@code portid,portname,sectorid,sector,subsector,subsectorid,listeddate},
+     * fields optionally quoted) keyed by ticker. A missing file yields an empty table; rows without
+     * a ticker are skipped.
+     */
+    public Map<String, Listing> loadReference() {
+        Path path = getRoot().resolve(referenceFile);
+        if (!Files.isRegularFile(path)) return Collections.emptyMap();
+        Map<String, Listing> listings = new HashMap<>();
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            if (line == null) return listings;
+            Map<String, Integer> cols = new HashMap<>();
+            List<String> header = splitCsvLine(line);
+            for (int i = 0; i < header.size(); i++) cols.put(header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT), i);
+            int ticker = column(cols, "portid", "ticker");
+            if (ticker < 0) {
+                log.warn("Reference table {} has no portid/ticker column", path);
+                return listings;
+            }
+            int name = column(cols, "portname", "name");
+            int sectorId = column(cols, "sectorid");
+            int sector = column(cols, "sector");
+            int subsectorId = column(cols, "subsectorid");
+            int subsector = column(cols, "subsector");
+            int listed = column(cols, "listeddate");
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+                List<String> f = splitCsvLine(line);
+                String t = field(f, ticker);
+                if (t == null) continue;
+                listings.put(t, new Listing(t, field(f, name), field(f, sectorId), field(f, sector),
+                        field(f, subsectorId), field(f, subsector), date(field(f, listed))));
+            }
+        } catch (IOException e) {
+            log.warn("Cannot read reference table {}: {}", path, e.getMessage());
+            return Collections.emptyMap();
+        }
+        log.info("Loaded {} listings from {}", listings.size(), path.getFileName());
+        return listings;
     }
 
-    private LocalDate parseDate(String s, DateTimeFormatter[] fmts) {
-        if (s == null) return null;
-        String v = s.trim();
-        for (DateTimeFormatter f : fmts) {
-            try { return LocalDate.parse(v, f); } catch (Exception ignored) {}
+    private static int column(Map<String, Integer> cols, String... names) {
+        for (String n : names) {
+            Integer i = cols.get(n);
+            if (i != null) return i;
         }
-        return null;
+        return -1;
     }
 
-    private BigDecimal parseDec(String s) {
-        if (s == null || s.isBlank()) return null;
-        return new BigDecimal(s.trim());
+    private static String field(List<String> fields, int col) {
+        if (col < 0 || col >= fields.size()) return null;
+        String v = fields.get(col).trim();
+        return v.isEmpty() ? null : v;
     }
 
-    private long parseLong(String s) {
-        if (s == null || s.isBlank()) return 0L;
-        try { return Long.parseLong(s.trim()); } catch (NumberFormatException e) { return 0L; }
+    private static LocalDate date(String v) {
+        if (v == null) return null;
+        try {
+            return LocalDate.parse(v);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
     }
-}
-
 
+    // RFC 4180 fields on a single line; the reference table is small, so a String split is fine here
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') sb.append(c);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == '"') sb.append(line.charAt(++i));
+                else quoted = false;
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(sb.toString());
+                sb.setLength(0);
+            } else {
+                sb.append(c);
+            }
+        }
+        fields.add(sb.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.stocks.service;
+
+import java.util.Arrays;
+
+/**
+ * Point reduction for line charts. Both methods return at most {@code threshold} indices of the
+ * points to keep, in ascending order, always including the first and last point; a threshold of 1
+ * keeps only the last one and a threshold of 0 or less keeps everything.
+ */
+public final class Downsampler {
+
+    private Downsampler() {
+    }
+
+    /** Largest-Triangle-Three-Buckets: keeps the visual shape of the line with {@code threshold} points. */
+    public static int[] lttb(int[] x, double[] y, int threshold) {
+        int n = x.length;
+        if (threshold >= n || threshold <= 0) return identity(n);
+        if (threshold < 3) return endpoints(n, threshold);
+        int[] keep = new int[threshold];
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        keep[0] = 0;
+        for (int i = 0; i < threshold - 2; i++) {
+            int avgStart = (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            double avgX = 0, avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            int len = avgEnd - avgStart;
+            avgX /= len;
+            avgY /= len;
+
+            int from = (int) Math.floor(i * every) + 1;
+            int to = (int) Math.floor((i + 1) * every) + 1;
+            double ax = x[a], ay = y[a];
+            double maxArea = -1;
+            int next = from;
+            for (int j = from; j < to; j++) {
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            keep[i + 1] = next;
+            a = next;
+        }
+        keep[threshold - 1] = n - 1;
+        return keep;
+    }
+
+    /** Keeps the minimum and maximum of each of {@code threshold / 2} equal-width index buckets. */
+    public static int[] minMax(double[] y, int threshold) {
+        int n = y.length;
+        if (threshold >= n || threshold <= 0) return identity(n);
+        if (threshold < 4) return endpoints(n, threshold);
+        int buckets = (threshold - 2) / 2;
+        int[] keep = new int[threshold];
+        int k = 0;
+        keep[k++] = 0;
+        double every = (double) (n - 2) / buckets;
+        for (int b = 0; b < buckets; b++) {
+            int from = (int) Math.floor(b * every) + 1;
+            int to = Math.min((int) Math.floor((b + 1) * every) + 1, n - 1);
+            if (from >= to) continue;
+            int min = from, max = from;
+            for (int j = from + 1; j < to; j++) {
+                if (y[j] < y[min]) min = j;
+                if (y[j] > y[max]) max = j;
+            }
+            keep[k++] = Math.min(min, max);
+            if (min != max) keep[k++] = Math.max(min, max);
+        }
+        keep[k++] = n - 1;
+        return Arrays.copyOf(keep, k);
+    }
+
+    /**
+     * LTTB over caller-chosen buckets, for lines that must share bucket boundaries: bucket
+     * {@code b} holds points {@code starts[b]} (inclusive) to {@code starts[b + 1]} (exclusive).
+     * Returns one index per bucket, or -1 for an empty bucket; the first and last non-empty buckets
+     * keep the line's first and last point.
+     */
+    public static int[] lttb(int[] x, double[] y, int[] starts) {
+        int buckets = starts.length - 1;
+        int n = x.length;
+        int[] keep = new int[buckets];
+        Arrays.fill(keep, -1);
+        if (n == 0) return keep;
+        // next[b]: first non-empty bucket after b, or buckets when there is none
+        int[] next = new int[buckets];
+        int following = buckets;
+        for (int b = buckets - 1; b >= 0; b--) {
+            next[b] = following;
+            if (starts[b] < starts[b + 1]) following = b;
+        }
+        int a = -1;
+        for (int b = 0; b < buckets; b++) {
+            int from = starts[b], to = starts[b + 1];
+            if (from >= to) continue;
+            if (a < 0 || to == n) {
+                keep[b] = a = a < 0 ? 0 : n - 1;
+                continue;
+            }
+            int nb = next[b];
+            int avgStart = starts[nb], avgEnd = starts[nb + 1];
+            double avgX = 0, avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            avgX /= avgEnd - avgStart;
+            avgY /= avgEnd - avgStart;
+            double ax = x[a], ay = y[a];
+            double maxArea = -1;
+            int pick = from;
+            for (int j = from; j < to; j++) {
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - x[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    pick = j;
+                }
+            }
+            keep[b] = a = pick;
+        }
+        return keep;
+    }
+
+    /**
+     * Minimum and maximum of each caller-chosen bucket (see {@link #lttb(int[], double[], int[])}),
+     * in order of occurrence at {@code [2b]} and {@code [2b + 1]}; both are the same index for a
+     * one-point bucket and -1 for an empty one.
+     */
+    public static int[] minMax(double[] y, int[] starts) {
+        int buckets = starts.length - 1;
+        int[] keep = new int[2 * buckets];
+        for (int b = 0; b < buckets; b++) {
+            int from = starts[b], to = starts[b + 1];
+            if (from >= to) {
+                keep[2 * b] = keep[2 * b + 1] = -1;
+                continue;
+            }
+            int min = from, max = from;
+            for (int j = from + 1; j < to; j++) {
+                if (y[j] < y[min]) min = j;
+                if (y[j] > y[max]) max = j;
+            }
+            keep[2 * b] = Math.min(min, max);
+            keep[2 * b + 1] = Math.max(min, max);
+        }
+        return keep;
+    }
+
+    private static int[] endpoints(int n, int threshold) {
+        return threshold == 1 ? new int[]{n - 1} : new int[]{0, n - 1};
+    }
+
+    private static int[] identity(int n) {
+        int[] all = new int[n];
+        for (int i = 0; i < n; i++) all[i] = i;
+        return all;
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.stocks.service;
+
+import com.example.stocks.config.ExecutionMode;
+import com.example.stocks.model.ChartData;
+import com.example.stocks.model.ExportJob;
+import com.example.stocks.model.QueryResult;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders PDF exports, streamed to the client through {@link #stream} or off the request thread as
+ * jobs. Identical exports (same {@link QueryKey}) rendering at the same time share one render: the
+ * first caller streams it (or, for a job, writes it to a file) while the others wait for its
+ * archive file and copy that. A fixed
+ * number of job workers drain a bounded queue; when the queue is full {@link #submit} throws
+ * {@link RejectedExecutionException}. A request whose normalized filters match a job that is
+ * still queued or running gets that job back instead of a new one. Finished jobs and their files,
+ * as well as old synchronous exports in {@code app.export.dir}, are removed once older than
+ * {@code app.export.ttl-minutes}.
+ */
+@Service
+public class ExportJobService {
+    private static final Logger log = LoggerFactory.getLogger(ExportJobService.class);
+
+    private final StockQueryService queryService;
+    private final ChartService chartService;
+    private final PdfService pdfService;
+    private final StockStore store;
+    private final Path exportDir;
+    private final Duration ttl;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ExportJob> pending = new ConcurrentHashMap<>();
+    // one future per render in progress, removed as soon as it completes
+    private final Map<QueryKey, CompletableFuture<Path>> rendering = new ConcurrentHashMap<>();
+    private final MeterRegistry meters;
+
+    public ExportJobService(StockQueryService queryService,
+                            ChartService chartService,
+                            PdfService pdfService,
+                            StockStore store,
+                            @Value("${app.export.dir:./exports}") String exportDir,
+                            @Value("${app.export.threads:2}") int threads,
+                            @Value("${app.export.queue-capacity:16}") int queueCapacity,
+                            @Value("${app.export.ttl-minutes:60}") long ttlMinutes,
+                            ExecutionMode execution,
+                            MeterRegistry meters) {
+        this.meters = meters;
+        this.queryService = queryService;
+        this.chartService = chartService;
+        this.pdfService = pdfService;
+        this.store = store;
+        this.exportDir = Paths.get(exportDir);
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        // the pool size is the concurrency limit; in virtual mode its workers are virtual threads
+        int n = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(n, n, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                execution.threadFactory("pdf-export-"), new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("stocks.export.queue", executor, e -> e.getQueue().size()).register(meters);
+        Gauge.builder("stocks.export.active", executor, ThreadPoolExecutor::getActiveCount).register(meters);
+    }
+
+    /** @throws RejectedExecutionException when the export queue is full */
+    public synchronized ExportJob submit(Set<String> tickers,
+                                         LocalDate startDate,
+                                         LocalDate endDate,
+                                         String sortBy,
+                                         String sortDir) {
+        String key = exportKey(tickers, startDate, endDate, sortBy, sortDir).toString();
+        ExportJob existing = pending.get(key);
+        if (existing != null && existing.isPending()) {
+            meters.counter("stocks.export.submit", "outcome", "deduplicated").increment();
+            return existing;
+        }
+
+        ExportJob job = new ExportJob(UUID.randomUUID().toString(), key);
+        jobs.put(job.getId(), job);
+        pending.put(key, job);
+        try {
+            executor.execute(() -> run(job, tickers, startDate, endDate, sortBy, sortDir));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            pending.remove(key, job);
+            meters.counter("stocks.export.submit", "outcome", "rejected").increment();
+            throw e;
+        }
+        meters.counter("stocks.export.submit", "outcome", "queued").increment();
+        return job;
+    }
+
+    /**
+     * Streams the export for these filters to {@code out} as it is rendered, archiving a copy under
+     * {@code app.export.dir}. When an identical export is already rendering, waits for its archive
+     * and copies that instead; a failure of that render is thrown here too.
+     */
+    public void stream(Set<String> tickers,
+                       LocalDate startDate,
+                       LocalDate endDate,
+                       String sortBy,
+                       String sortDir,
+                       OutputStream out) throws IOException {
+        QueryKey key = exportKey(tickers, startDate, endDate, sortBy, sortDir);
+        CompletableFuture<Path> flight = new CompletableFuture<>();
+        CompletableFuture<Path> leader = rendering.putIfAbsent(key, flight);
+        if (leader != null) {
+            meters.counter("stocks.export.render", "outcome", "coalesced").increment();
+            try (out) {
+                Files.copy(await(leader), out);
+            }
+            return;
+        }
+        CompletableFuture<Path> archived;
+        try {
+            archived = pdfService.exportPdf(out, "Stocks Dashboard", chartData(tickers, startDate, endDate),
+                    queryService.select(tickers, startDate, endDate, sortBy, sortDir),
+                    describeFilters(tickers, startDate, endDate));
+        } catch (IOException | RuntimeException e) {
+            finish(key, flight, null, e);
+            throw e;
+        }
+        meters.counter("stocks.export.render", "outcome", "rendered").increment();
+        // waiters need the whole file, which the archive task finishes shortly after the response
+        archived.whenComplete((file, e) -> finish(key, flight, file, e));
+    }
+
+    /**
+     * Renders the export for these filters to an archive file under {@code app.export.dir} and
+     * returns it. A caller asking for an export that is already being rendered waits for that
+     * render and gets the same file (or its exception) instead of building the document again.
+     */
+    public Path render(Set<String> tickers,
+                       LocalDate startDate,
+                       LocalDate endDate,
+                       String sortBy,
+                       String sortDir) throws IOException {
+        QueryKey key = exportKey(tickers, startDate, endDate, sortBy, sortDir);
+        CompletableFuture<Path> flight = new CompletableFuture<>();
+        CompletableFuture<Path> leader = rendering.putIfAbsent(key, flight);
+        if (leader != null) {
+            meters.counter("stocks.export.render", "outcome", "coalesced").increment();
+            return await(leader);
+        }
+        Path file;
+        try {
+            QueryResult data = queryService.select(tickers, startDate, endDate, sortBy, sortDir);
+            file = pdfService.archivePdf("Stocks Dashboard", chartData(tickers, startDate, endDate), data,
+                    describeFilters(tickers, startDate, endDate));
+        } catch (IOException | RuntimeException e) {
+            finish(key, flight, null, e);
+            throw e;
+        }
+        meters.counter("stocks.export.render", "outcome", "rendered").increment();
+        finish(key, flight, file, null);
+        return file;
+    }
+
+    // the chart image cannot show more points than it has pixels
+    private ChartData chartData(Set<String> tickers, LocalDate startDate, LocalDate endDate) {
+        return chartService.buildSeries(tickers, startDate, endDate, ChartService.CHART_WIDTH, "lttb");
+    }
+
+    private void finish(QueryKey key, CompletableFuture<Path> flight, Path file, Throwable failure) {
+        rendering.remove(key, flight);
+        if (failure == null) flight.complete(file);
+        else flight.completeExceptionally(failure);
+    }
+
+    /** Renders in progress; each is dropped once its file is complete or has failed. */
+    int inFlight() {
+        return rendering.size();
+    }
+
+    private static Path await(CompletableFuture<Path> flight) throws IOException {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private QueryKey exportKey(Set<String> tickers, LocalDate startDate, LocalDate endDate, String sortBy,
+                               String sortDir) {
+        boolean desc = "desc".equalsIgnoreCase(sortDir);
+        return QueryKey.of(store.snapshot(), tickers, startDate, endDate,
+                StockQueryService.sortKey(sortBy) + (desc ? " desc" : " asc"));
+    }
+
+    public Optional<ExportJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public static Map<String, String> describeFilters(Set<String> tickers, LocalDate startDate, LocalDate endDate) {
+        Map<String, String> filters = new LinkedHashMap<>();
+        filters.put("tickers", tickers == null || tickers.isEmpty() ? "(all)" : String.join(",", tickers));
+        filters.put("startDate", startDate == null ? "" : startDate.toString());
+        filters.put("endDate", endDate == null ? "" : endDate.toString());
+        return filters;
+    }
+
+    private void run(ExportJob job, Set<String> tickers, LocalDate startDate, LocalDate endDate,
+                     String sortBy, String sortDir) {
+        job.running();
+        meters.timer("stocks.export.wait").record(Duration.between(job.getCreatedAt(), Instant.now()));
+        Path file = exportDir.resolve("job_" + job.getId() + ".pdf");
+        Path tmp = exportDir.resolve(file.getFileName() + ".part");
+        try {
+            // the job keeps its own copy, since the shared render is also an archive with its own lifetime
+            Path rendered = render(tickers, startDate, endDate, sortBy, sortDir);
+            Files.copy(rendered, tmp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.done(file);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Export job {} failed: {}", job.getId(), e.toString());
+            deleteQuietly(tmp);
+            job.failed(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        } finally {
+            pending.remove(job.getKey(), job);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.export.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        Instant cutoff = Instant.now().minus(ttl);
+        jobs.values().removeIf(job -> {
+            if (job.isPending() || job.getFinishedAt().isAfter(cutoff)) return false;
+            if (job.getFile() != null) deleteQuietly(job.getFile());
+            return true;
+        });
+        if (!Files.isDirectory(exportDir)) return;
+        // a .part may belong to a render still writing it; leftovers go once nothing is rendering
+        boolean idle = rendering.isEmpty();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(exportDir, "{stocks_,job_}*.{pdf,pdf.part}")) {
+            for (Path p : files) {
+                if (!idle && p.getFileName().toString().endsWith(".part")) continue;
+                if (Files.getLastModifiedTime(p).toInstant().isBefore(cutoff) && !isReferenced(p)) deleteQuietly(p);
+            }
+        } catch (IOException e) {
+            log.warn("Could not clean {}: {}", exportDir, e.getMessage());
+        }
+    }
+
+    private boolean isReferenced(Path p) {
+        String name = p.getFileName().toString();
+        for (ExportJob job : jobs.values()) {
+            if (name.startsWith("job_" + job.getId())) return true;
+        }
+        return false;
+    }
+
+    private static void deleteQuietly(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException ignored) {
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
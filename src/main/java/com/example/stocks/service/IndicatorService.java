@@ -0,0 +1,56 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.Interval;
+import com.example.stocks.model.TickerSeries;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Computes indicator lines over a ticker's full history and keeps the result together with the
+ * rolling state before its last row. When a snapshot only appends rows to a series or rewrites its
+ * last one (the open week/month/year of a rollup), the cached state re-pushes just those rows; the
+ * earlier output is copied over, so the work is one array copy plus O(changed rows) arithmetic.
+ * Which rows are unchanged comes from {@link TickerSeries#rowsSharedWith}, known only against the
+ * previous snapshot's series; an entry older than that, or one for a reworked history, is recomputed.
+ */
+@Service
+public class IndicatorService {
+
+    private final WeightedLruCache<Key, Indicators.Computed> cache;
+    private final MeterRegistry meters;
+
+    public IndicatorService(@Value("${app.cache.indicator-max-bytes:33554432}") long cacheMaxBytes,
+                            MeterRegistry meters) {
+        this.cache = new WeightedLruCache<>(cacheMaxBytes, Indicators.Computed::weight);
+        this.meters = meters;
+    }
+
+    public WeightedLruCache<?, ?> getCache() {
+        return cache;
+    }
+
+    /** {@code values[line][row]} for every row of {@code series}, which belongs to {@code interval}. */
+    public double[][] compute(TickerSeries series, Interval interval, Indicators.Spec spec) {
+        Key key = new Key(series.getTicker(), interval, spec);
+        Indicators.Computed cached = cache.peek(key);
+        Indicators.Computed result;
+        String outcome;
+        if (cached != null && cached.source == series) {
+            meters.counter("stocks.indicator.compute", "outcome", "cached").increment();
+            return cached.values;
+        } else if (cached != null && Indicators.canExtend(cached, series)) {
+            result = Indicators.extend(cached, series);
+            outcome = "extended";
+        } else {
+            result = Indicators.compute(spec, series);
+            outcome = "full";
+        }
+        meters.counter("stocks.indicator.compute", "outcome", outcome).increment();
+        cache.put(key, result);
+        return result.values;
+    }
+
+    private record Key(String ticker, Interval interval, Indicators.Spec spec) {
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.TickerSeries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Technical indicators over a ticker's close and volume columns. Each indicator is a small rolling
+ * state fed one row at a time, so a full history is a single pass. The state is kept as it was
+ * before the last row, so a newer series that only appends rows or rewrites its last one (the open
+ * bucket of a rollup) costs one {@link Rolling#push} per changed row. Rows without a close produce {@code NaN} and leave the state untouched;
+ * so do rows inside the warm-up window.
+ */
+public final class Indicators {
+
+    private static final Pattern SPEC = Pattern.compile("([a-z]+)(\\d*)");
+    private static final int MAX_PERIOD = 5000;
+
+    private Indicators() {
+    }
+
+    public enum Kind {
+        /** Simple moving average of close. */
+        SMA(20),
+        /** Exponential moving average of close, seeded with the first SMA. */
+        EMA(20),
+        /** Rolling volume-weighted average close. */
+        VWAP(20),
+        /** Bollinger bands: SMA and SMA +/- 2 standard deviations. */
+        BB(20),
+        /** Wilder's relative strength index, 0..100. */
+        RSI(14);
+
+        private final int defaultPeriod;
+
+        Kind(int defaultPeriod) {
+            this.defaultPeriod = defaultPeriod;
+        }
+    }
+
+    public record Spec(Kind kind, int period) {
+
+        public String code() {
+            return kind.name().toLowerCase(Locale.ROOT) + period;
+        }
+
+        /** Names of the output lines; a single unnamed line for everything but Bollinger bands. */
+        public List<String> outputs() {
+            return kind == Kind.BB ? List.of("upper", "middle", "lower") : List.of("");
+        }
+
+        Rolling start() {
+            return switch (kind) {
+                case SMA -> new Sma(period);
+                case EMA -> new Ema(period);
+                case VWAP -> new Vwap(period);
+                case BB -> new Bollinger(period);
+                case RSI -> new Rsi(period);
+            };
+        }
+    }
+
+    /**
+     * Parses a comma-separated list such as {@code sma20,ema50,bb,rsi14,vwap}; a missing period
+     * takes the indicator's default. Duplicates are dropped.
+     *
+     * @throws IllegalArgumentException on an unknown name or a period outside 2..5000
+     */
+    public static List<Spec> parse(String value) {
+        List<Spec> specs = new ArrayList<>();
+        if (value == null || value.isBlank()) return specs;
+        for (String part : value.split(",")) {
+            String p = part.trim().toLowerCase(Locale.ROOT);
+            if (p.isEmpty()) continue;
+            Matcher m = SPEC.matcher(p);
+            if (!m.matches()) throw new IllegalArgumentException("Invalid indicator: " + part);
+            Kind kind;
+            try {
+                kind = Kind.valueOf(m.group(1).toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown indicator: " + part);
+            }
+            int period = m.group(2).isEmpty() ? kind.defaultPeriod : parsePeriod(m.group(2), part);
+            Spec spec = new Spec(kind, period);
+            if (!specs.contains(spec)) specs.add(spec);
+        }
+        return specs;
+    }
+
+    private static int parsePeriod(String digits, String part) {
+        int period = digits.length() > 4 ? Integer.MAX_VALUE : Integer.parseInt(digits);
+        if (period < 2 || period > MAX_PERIOD) {
+            throw new IllegalArgumentException("Indicator period out of range: " + part);
+        }
+        return period;
+    }
+
+    /**
+     * Output of one indicator over every row of {@code source} ({@code values[line][row]}) plus the
+     * rolling state after every row but the last.
+     */
+    static final class Computed {
+        final TickerSeries source;
+        final double[][] values;
+        private final Rolling beforeLast;
+
+        private Computed(TickerSeries source, double[][] values, Rolling beforeLast) {
+            this.source = source;
+            this.values = values;
+            this.beforeLast = beforeLast;
+        }
+
+        long weight() {
+            return 64L + (long) values.length * (16L + 8L * source.size()) + beforeLast.weight();
+        }
+    }
+
+    static Computed compute(Spec spec, TickerSeries s) {
+        double[][] values = new double[spec.outputs().size()][s.size()];
+        return new Computed(s, values, feed(spec.start(), s, 0, values));
+    }
+
+    /**
+     * Whether {@code s} keeps every row of {@code previous.source} but the last and has at least as
+     * many rows, going by {@link TickerSeries#rowsSharedWith} rather than comparing the rows.
+     */
+    static boolean canExtend(Computed previous, TickerSeries s) {
+        int from = previous.source.size() - 1;
+        return from >= 0 && s.size() > from && s.rowsSharedWith(previous.source) >= from;
+    }
+
+    /**
+     * Continues {@code previous} from its last row, which {@code s} may have rewritten, over the rows
+     * {@code s} adds. Only those rows are pushed; the earlier output is copied (one array copy per line).
+     */
+    static Computed extend(Computed previous, TickerSeries s) {
+        int from = previous.source.size() - 1;
+        double[][] values = new double[previous.values.length][];
+        for (int k = 0; k < values.length; k++) {
+            values[k] = new double[s.size()];
+            System.arraycopy(previous.values[k], 0, values[k], 0, from);
+        }
+        return new Computed(s, values, feed(previous.beforeLast.copy(), s, from, values));
+    }
+
+    /** Pushes rows {@code from..} into {@code state} and returns a copy of it taken before the last row. */
+    private static Rolling feed(Rolling state, TickerSeries s, int from, double[][] values) {
+        double[] out = new double[values.length];
+        Rolling beforeLast = state;
+        for (int i = from; i < s.size(); i++) {
+            if (i == s.size() - 1) beforeLast = state.copy();
+            double c = s.close(i);
+            if (Double.isNaN(c)) {
+                Arrays.fill(out, Double.NaN);
+            } else {
+                state.push(c, s.volume(i), out);
+            }
+            for (int k = 0; k < out.length; k++) values[k][i] = out[k];
+        }
+        return beforeLast;
+    }
+
+    abstract static class Rolling {
+        /** Consumes one close and writes this row's output lines into {@code out}. */
+        abstract void push(double close, long volume, double[] out);
+
+        abstract Rolling copy();
+
+        abstract long weight();
+    }
+
+    /** Fixed-size window of the last {@code n} values with their running sum and sum of squares. */
+    private static final class Window {
+        final double[] ring;
+        int pos;
+        int count;
+        double sum;
+        double sumSq;
+
+        Window(int n) {
+            ring = new double[n];
+        }
+
+        Window(Window w) {
+            ring = w.ring.clone();
+            pos = w.pos;
+            count = w.count;
+            sum = w.sum;
+            sumSq = w.sumSq;
+        }
+
+        void add(double v) {
+            if (count == ring.length) {
+                double old = ring[pos];
+                sum -= old;
+                sumSq -= old * old;
+            } else {
+                count++;
+            }
+            ring[pos] = v;
+            sum += v;
+            sumSq += v * v;
+            pos = pos + 1 == ring.length ? 0 : pos + 1;
+        }
+
+        boolean full() {
+            return count == ring.length;
+        }
+    }
+
+    private static final class Sma extends Rolling {
+        private final Window w;
+
+        Sma(int n) { w = new Window(n); }
+        private Sma(Sma o) { w = new Window(o.w); }
+
+        @Override
+        void push(double close, long volume, double[] out) {
+            w.add(close);
+            out[0] = w.full() ? w.sum / w.count : Double.NaN;
+        }
+
+        @Override Rolling copy() { return new Sma(this); }
+        @Override long weight() { return 48L + 8L * w.ring.length; }
+    }
+
+    private static final class Ema extends Rolling {
+        private final int n;
+        private final double alpha;
+        private int count;
+        private double ema;
+
+        Ema(int n) {
+            this.n = n;
+            this.alpha = 2.0 / (n + 1);
+        }
+
+        @Override
+        void push(double close, long volume, double[] out) {
+            if (count < n) {
+                ema += close;
+                if (++count == n) ema /= n;
+            } else {
+                ema += alpha * (close - ema);
+            }
+            out[0] = count == n ? ema : Double.NaN;
+        }
+
+        @Override
+        Rolling copy() {
+            Ema e = new Ema(n);
+            e.count = count;
+            e.ema = ema;
+            return e;
+        }
+
+        @Override long weight() { return 48L; }
+    }
+
+    private static final class Vwap extends Rolling {
+        private final Window priceVolume;
+        private final Window volume;
+
+        Vwap(int n) {
+            priceVolume = new Window(n);
+            volume = new Window(n);
+        }
+
+        private Vwap(Vwap o) {
+            priceVolume = new Window(o.priceVolume);
+            volume = new Window(o.volume);
+        }
+
+        @Override
+        void push(double close, long v, double[] out) {
+            priceVolume.add(close * v);
+            volume.add(v);
+            out[0] = volume.full() && volume.sum > 0 ? priceVolume.sum / volume.sum : Double.NaN;
+        }
+
+        @Override Rolling copy() { return new Vwap(this); }
+        @Override long weight() { return 96L + 16L * volume.ring.length; }
+    }
+
+    private static final class Bollinger extends Rolling {
+        private final Window w;
+
+        Bollinger(int n) { w = new Window(n); }
+        private Bollinger(Bollinger o) { w = new Window(o.w); }
+
+        @Override
+        void push(double close, long volume, double[] out) {
+            w.add(close);
+            if (!w.full()) {
+                Arrays.fill(out, Double.NaN);
+                return;
+            }
+            double mean = w.sum / w.count;
+            double sd = Math.sqrt(Math.max(0, w.sumSq / w.count - mean * mean));
+            out[0] = mean + 2 * sd;
+            out[1] = mean;
+            out[2] = mean - 2 * sd;
+        }
+
+        @Override Rolling copy() { return new Bollinger(this); }
+        @Override long weight() { return 48L + 8L * w.ring.length; }
+    }
+
+    private static final class Rsi extends Rolling {
+        private final int n;
+        private int count = -1; // changes seen; -1 until the first close
+        private double prev;
+        private double avgGain;
+        private double avgLoss;
+
+        Rsi(int n) { this.n = n; }
+
+        @Override
+        void push(double close, long volume, double[] out) {
+            if (count < 0) {
+                count = 0;
+                prev = close;
+                out[0] = Double.NaN;
+                return;
+            }
+            double change = close - prev;
+            prev = close;
+            double gain = Math.max(change, 0);
+            double loss = Math.max(-change, 0);
+            if (count < n) {
+                avgGain += gain / n;
+                avgLoss += loss / n;
+                count++;
+            } else {
+                avgGain = (avgGain * (n - 1) + gain) / n;
+                avgLoss = (avgLoss * (n - 1) + loss) / n;
+            }
+            if (count < n) out[0] = Double.NaN;
+            else out[0] = avgLoss == 0 ? 100 : 100 - 100 / (1 + avgGain / avgLoss);
+        }
+
+        @Override
+        Rolling copy() {
+            Rsi r = new Rsi(n);
+            r.count = count;
+            r.prev = prev;
+            r.avgGain = avgGain;
+            r.avgLoss = avgLoss;
+            return r;
+        }
+
+        @Override long weight() { return 64L; }
+    }
+}
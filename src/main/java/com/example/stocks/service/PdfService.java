@@ -1,6 +1,9 @@
 package com.example.stocks.service;
 
-import com.example.stocks.model.StockPrice;
+import com.example.stocks.config.ExecutionMode;
+import com.example.stocks.model.ChartData;
+import com.example.stocks.model.QueryResult;
+import com.example.stocks.model.TickerSeries;
 import com.lowagie.text.Document;
 import com.lowagie.text.DocumentException;
 import com.lowagie.text.Element;
@@ -10,45 +13,130 @@ import com.lowagie.text.Image;
 import com.lowagie.text.PageSize;
 import com.lowagie.text.Paragraph;
 import com.lowagie.text.Phrase;
-import com.lowagie.text.Table;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfTemplate;
+import com.lowagie.text.pdf.PdfWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.awt.Graphics2D;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class PdfService {
+    private static final int TABLE_CHUNK = 500;
+
     private final ChartService chartService;
     private final String exportDir;
     private final String pdfTitle;
+    private final boolean vectorChart;
+    private final int maxRows;
+    private final AtomicLong archiveSeq = new AtomicLong();
+    private final MeterRegistry meters;
+    private final ExecutorService archiveExecutor;
 
     public PdfService(ChartService chartService,
                       @Value("${app.export.dir:./exports}") String exportDir,
-                      @Value("${app.pdf.title:Stocks Dashboard}") String pdfTitle) {
+                      @Value("${app.pdf.title:Stocks Dashboard}") String pdfTitle,
+                      @Value("${app.pdf.chart-mode:raster}") String chartMode,
+                      @Value("${app.pdf.max-rows:20000}") int maxRows,
+                      ExecutionMode execution,
+                      MeterRegistry meters) {
+        this.meters = meters;
         this.chartService = chartService;
         this.exportDir = exportDir;
         this.pdfTitle = pdfTitle;
+        this.vectorChart = "vector".equalsIgnoreCase(chartMode);
+        this.maxRows = maxRows;
+        this.archiveExecutor = execution.newBlockingExecutor("pdf-archive-");
     }
 
-    public byte[] generatePdf(String title,
-                               Map<String, Object> chartData,
-                               List<StockPrice> tableData,
-                               Map<String, String> activeFilters) throws IOException, DocumentException {
+    /**
+     * Streams the report to {@code out} while a background task copies the same bytes to a new
+     * archive file under {@code app.export.dir}. Nothing is buffered beyond the current table chunk.
+     * The returned future completes with the archive once it is in place, or exceptionally when
+     * the document or its archive could not be completed.
+     */
+    public CompletableFuture<Path> exportPdf(OutputStream out,
+                                             String title,
+                                             ChartData chartData,
+                                             QueryResult tableData,
+                                             Map<String, String> activeFilters) throws IOException, DocumentException {
+        Path dir = Paths.get(exportDir);
+        Files.createDirectories(dir);
+        ArchiveTeeOutputStream tee = new ArchiveTeeOutputStream(out, dir.resolve(archiveName()), archiveExecutor);
+        try {
+            writePdf(tee, title, chartData, tableData, activeFilters);
+        } catch (IOException | RuntimeException e) {
+            tee.abort();
+            throw e;
+        }
+        return tee.archived();
+    }
 
-        Files.createDirectories(Paths.get(exportDir));
-        byte[] chartPng = chartService.renderLineChartPng(title, chartData);
+    /**
+     * Writes the report to a new archive file under {@code app.export.dir} and returns it. The file
+     * is written under a temporary name and moved into place only when complete.
+     */
+    public Path archivePdf(String title,
+                           ChartData chartData,
+                           QueryResult tableData,
+                           Map<String, String> activeFilters) throws IOException, DocumentException {
+        Path dir = Paths.get(exportDir);
+        Files.createDirectories(dir);
+        String fileName = archiveName();
+        Path file = dir.resolve(fileName);
+        Path tmp = dir.resolve(fileName + ".part");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024)) {
+                writePdf(out, title, chartData, tableData, activeFilters);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        return file;
+    }
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    // the sequence keeps exports started within the same second from sharing an archive file
+    private String archiveName() {
+        return "stocks_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"))
+                + "_" + archiveSeq.incrementAndGet() + ".pdf";
+    }
+
+    /** Writes the report to {@code out} and closes it. */
+    public void writePdf(OutputStream out,
+                         String title,
+                         ChartData chartData,
+                         QueryResult tableData,
+                         Map<String, String> activeFilters) throws IOException, DocumentException {
+        boolean summary = maxRows > 0 && tableData.size() > maxRows;
+        CountingOutputStream counted = new CountingOutputStream(out);
+        Timer.Sample sample = Timer.start(meters);
         Document doc = new Document(PageSize.A4.rotate(), 24, 24, 24, 24);
-        com.lowagie.text.pdf.PdfWriter.getInstance(doc, baos);
+        PdfWriter writer = PdfWriter.getInstance(doc, counted);
         doc.open();
 
         Font h1 = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18);
@@ -67,41 +155,149 @@ public class PdfService {
             doc.add(new Paragraph("Filters: " + sb, small));
         }
 
-        Image chart = Image.getInstance(chartPng);
+        Timer.Sample stage = Timer.start(meters);
+        Image chart = chartImage(writer, title, chartData);
         chart.scaleToFit(770, 300);
         chart.setAlignment(Element.ALIGN_CENTER);
         doc.add(chart);
+        stage.stop(meters.timer("stocks.pdf.stage", "stage", "chart", "variant", vectorChart ? "vector" : "raster"));
 
-        Table table = new Table(7);
-        table.setWidth(100);
-        table.setPadding(3);
-        table.addCell(new Phrase("date"));
-        table.addCell(new Phrase("ticker"));
-        table.addCell(new Phrase("open"));
-        table.addCell(new Phrase("high"));
-        table.addCell(new Phrase("low"));
-        table.addCell(new Phrase("close"));
-        table.addCell(new Phrase("volume"));
-
-        for (StockPrice sp : tableData) {
-            table.addCell(sp.getDate() == null ? "" : sp.getDate().toString());
-            table.addCell(sp.getTicker() == null ? "" : sp.getTicker());
-            table.addCell(sp.getOpen() == null ? "" : sp.getOpen().toPlainString());
-            table.addCell(sp.getHigh() == null ? "" : sp.getHigh().toPlainString());
-            table.addCell(sp.getLow() == null ? "" : sp.getLow().toPlainString());
-            table.addCell(sp.getClose() == null ? "" : sp.getClose().toPlainString());
-            table.addCell(Long.toString(sp.getVolume()));
+        stage = Timer.start(meters);
+        if (summary) {
+            doc.add(new Paragraph(String.format(Locale.ROOT,
+                    "%d rows exceed the table limit of %d; showing a per-ticker summary.",
+                    tableData.size(), maxRows), small));
+            doc.add(summaryTable(tableData));
+        } else {
+            writeRowTable(doc, tableData);
         }
+        doc.close();
+        stage.stop(meters.timer("stocks.pdf.stage", "stage", "table", "variant", summary ? "summary" : "rows"));
+
+        sample.stop(Timer.builder("stocks.pdf.generate")
+                .tags("chart", vectorChart ? "vector" : "raster", "table", summary ? "summary" : "rows")
+                .publishPercentileHistogram()
+                .register(meters));
+        DistributionSummary.builder("stocks.pdf.size").baseUnit("bytes").register(meters).record(counted.count);
+    }
+
+    /**
+     * Adds the rows in chunks of {@code TABLE_CHUNK}; an incomplete PdfPTable hands finished rows
+     * to the writer on every add, so only the current chunk is held in memory. The header row is
+     * repeated on every page.
+     */
+    private void writeRowTable(Document doc, QueryResult rows) throws DocumentException {
+        PdfPTable table = newTable("date", "ticker", "open", "high", "low", "close", "volume");
+        table.setComplete(false);
+        for (int i = 0; i < rows.size(); i++) {
+            TickerSeries s = rows.series(i);
+            int r = rows.row(i);
+            table.addCell(LocalDate.ofEpochDay(s.day(r)).toString());
+            table.addCell(s.getTicker());
+            table.addCell(formatPrice(s.open(r)));
+            table.addCell(formatPrice(s.high(r)));
+            table.addCell(formatPrice(s.low(r)));
+            table.addCell(formatPrice(s.close(r)));
+            table.addCell(Long.toString(s.volume(r)));
+            if ((i + 1) % TABLE_CHUNK == 0) doc.add(table);
+        }
+        table.setComplete(true);
         doc.add(table);
+    }
 
-        doc.close();
-        byte[] pdf = baos.toByteArray();
+    private PdfPTable summaryTable(QueryResult rows) {
+        TickerSeries[] series = rows.getSeries();
+        int k = series.length;
+        int[] count = new int[k];
+        int[] first = new int[k];
+        int[] last = new int[k];
+        double[] low = new double[k];
+        double[] high = new double[k];
+        long[] volume = new long[k];
+        Arrays.fill(low, Double.POSITIVE_INFINITY);
+        Arrays.fill(high, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < rows.size(); i++) {
+            int t = rows.seriesIndex(i);
+            int r = rows.row(i);
+            TickerSeries s = series[t];
+            if (count[t]++ == 0) {
+                first[t] = r;
+                last[t] = r;
+            }
+            if (s.day(r) < s.day(first[t])) first[t] = r;
+            if (s.day(r) > s.day(last[t])) last[t] = r;
+            if (s.low(r) < low[t]) low[t] = s.low(r);
+            if (s.high(r) > high[t]) high[t] = s.high(r);
+            volume[t] += s.volume(r);
+        }
+        PdfPTable table = newTable("ticker", "rows", "first date", "last date", "low", "high", "last close", "volume");
+        for (int t = 0; t < k; t++) {
+            if (count[t] == 0) continue;
+            TickerSeries s = series[t];
+            table.addCell(s.getTicker());
+            table.addCell(Integer.toString(count[t]));
+            table.addCell(LocalDate.ofEpochDay(s.day(first[t])).toString());
+            table.addCell(LocalDate.ofEpochDay(s.day(last[t])).toString());
+            table.addCell(formatPrice(Double.isInfinite(low[t]) ? Double.NaN : low[t]));
+            table.addCell(formatPrice(Double.isInfinite(high[t]) ? Double.NaN : high[t]));
+            table.addCell(formatPrice(s.close(last[t])));
+            table.addCell(Long.toString(volume[t]));
+        }
+        return table;
+    }
 
-        String fileName = "stocks_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".pdf";
-        Path out = Paths.get(exportDir, fileName);
-        Files.write(out, pdf);
-        return pdf;
+    private PdfPTable newTable(String... headers) {
+        PdfPTable table = new PdfPTable(headers.length);
+        table.setWidthPercentage(100);
+        table.getDefaultCell().setPadding(3);
+        for (String h : headers) table.addCell(new Phrase(h));
+        table.setHeaderRows(1);
+        return table;
     }
-}
 
+    // vector mode draws the chart into a PDF template: no rasterization and a sharper, smaller file
+    private Image chartImage(PdfWriter writer, String title, ChartData chartData) throws IOException, DocumentException {
+        if (!vectorChart) {
+            return Image.getInstance(chartService.renderLineChartPng(title, chartData));
+        }
+        int w = ChartService.CHART_WIDTH;
+        int h = ChartService.CHART_HEIGHT;
+        PdfTemplate template = writer.getDirectContent().createTemplate(w, h);
+        Graphics2D g = template.createGraphics(w, h);
+        try {
+            chartService.drawLineChart(title, chartData, g, w, h);
+        } finally {
+            g.dispose();
+        }
+        return Image.getInstance(template);
+    }
+
+    private String formatPrice(double v) {
+        return Double.isNaN(v) ? "" : BigDecimal.valueOf(v).toPlainString();
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
 
+    @PreDestroy
+    public void shutdown() {
+        archiveExecutor.shutdown();
+    }
+}
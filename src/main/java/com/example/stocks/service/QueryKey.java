@@ -0,0 +1,35 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.StockSnapshot;
+import com.example.stocks.model.TickerFilter;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Normalized filter tuple used as cache key: the snapshot version, the ticker filter with sorted
+ * components, the date range clamped to the data actually loaded, and the sort (or chart variant)
+ * being asked for. Requests that can only produce the same result map to the same key.
+ */
+record QueryKey(long version, TickerFilter filter, int from, int to, String sortKey) {
+
+    static QueryKey of(StockSnapshot snapshot, Set<String> tickers, LocalDate start, LocalDate end, String sortKey) {
+        return of(snapshot, TickerFilter.of(tickers), start, end, sortKey);
+    }
+
+    static QueryKey of(StockSnapshot snapshot, TickerFilter filter, LocalDate start, LocalDate end, String sortKey) {
+        int from = start == null ? Integer.MIN_VALUE : (int) start.toEpochDay();
+        int to = end == null ? Integer.MAX_VALUE : (int) end.toEpochDay();
+        if (from <= snapshot.getMinDay()) from = Integer.MIN_VALUE;
+        if (to >= snapshot.getMaxDay()) to = Integer.MAX_VALUE;
+        return new QueryKey(snapshot.getVersion(), filter, from, to, sortKey);
+    }
+
+    LocalDate startDate() {
+        return from == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(from);
+    }
+
+    LocalDate endDate() {
+        return to == Integer.MAX_VALUE ? null : LocalDate.ofEpochDay(to);
+    }
+}
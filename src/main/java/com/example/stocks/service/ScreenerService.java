@@ -0,0 +1,215 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.Interval;
+import com.example.stocks.model.Listing;
+import com.example.stocks.model.ScreenRow;
+import com.example.stocks.model.StockSnapshot;
+import com.example.stocks.model.TickerFilter;
+import com.example.stocks.model.TickerSeries;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Cross-sectional screens over the latest daily bars: every candidate ticker's window is
+ * evaluated in a fork-join task over ticker partitions, each leaf keeps its best {@code limit}
+ * tickers in a bounded heap, and heaps are merged pairwise on the way back up. Only the final
+ * {@code limit} rows are materialized.
+ */
+@Service
+public class ScreenerService {
+
+    /** Tickers per leaf task; a window evaluation is two binary searches and a short scan. */
+    private static final int LEAF = 32;
+
+    public enum Metric {
+        RETURN("return"), AVG_VOLUME("avgVolume"), CLOSE("close");
+
+        private final String code;
+
+        Metric(String code) {
+            this.code = code;
+        }
+
+        public String code() { return code; }
+
+        /** @throws IllegalArgumentException for an unknown metric */
+        public static Metric parse(String value) {
+            if (value == null || value.isBlank()) return RETURN;
+            for (Metric m : values()) {
+                if (m.code.equalsIgnoreCase(value) || m.name().equalsIgnoreCase(value)) return m;
+            }
+            throw new IllegalArgumentException("Unknown metric: " + value);
+        }
+    }
+
+    /**
+     * @param asOf          last day of the window; {@code null} for the latest loaded day
+     * @param days          calendar days in the window, {@code asOf} included
+     * @param minAvgVolume  {@code null} for no bound; likewise for the return bounds (in percent)
+     */
+    public record Criteria(TickerFilter filter, LocalDate asOf, int days, Metric rankBy, boolean desc, int limit,
+                           Double minAvgVolume, Double minReturn, Double maxReturn) {
+    }
+
+    /**
+     * @param screened tickers evaluated
+     * @param matched  tickers that had data in the window and passed every bound
+     */
+    public record Screen(LocalDate from, LocalDate asOf, int screened, int matched, List<ScreenRow> rows) {
+    }
+
+    private final StockStore store;
+    private final MeterRegistry meters;
+
+    public ScreenerService(StockStore store, MeterRegistry meters) {
+        this.store = store;
+        this.meters = meters;
+    }
+
+    public Screen screen(Criteria c) {
+        Timer.Sample sample = Timer.start(meters);
+        StockSnapshot snapshot = store.snapshot();
+        if (snapshot.isEmpty()) return new Screen(null, c.asOf(), 0, 0, List.of());
+        int to = c.asOf() == null ? snapshot.getMaxDay() : (int) c.asOf().toEpochDay();
+        int from = to - c.days() + 1;
+        TickerSeries[] candidates = snapshot.match(Interval.DAY, c.filter()).toArray(new TickerSeries[0]);
+
+        Heap best = ForkJoinPool.commonPool().invoke(new ScreenTask(candidates, 0, candidates.length, c, from, to));
+
+        List<Candidate> top = best.sorted();
+        List<ScreenRow> rows = new ArrayList<>(top.size());
+        for (Candidate k : top) {
+            TickerSeries s = k.series;
+            Listing listing = snapshot.getListings().get(s.getTicker());
+            rows.add(new ScreenRow(s.getTicker(), listing, LocalDate.ofEpochDay(s.day(k.first)),
+                    LocalDate.ofEpochDay(s.day(k.last)), s.close(k.first), s.close(k.last),
+                    k.change, k.avgVolume, k.rows));
+        }
+        sample.stop(Timer.builder("stocks.screen")
+                .tags("rankBy", c.rankBy().code())
+                .publishPercentileHistogram()
+                .register(meters));
+        return new Screen(LocalDate.ofEpochDay(from), LocalDate.ofEpochDay(to), candidates.length, best.matched, rows);
+    }
+
+    /** Evaluates {@code s} over {@code from..to}; null when it has no close there or fails a bound. */
+    private static Candidate evaluate(TickerSeries s, Criteria c, int from, int to) {
+        int a = s.lowerBound(from);
+        int b = s.upperBound(to);
+        if (a >= b) return null;
+        int first = a;
+        while (first < b && Double.isNaN(s.close(first))) first++;
+        int last = b - 1;
+        while (last > first && Double.isNaN(s.close(last))) last--;
+        if (first >= b) return null;
+        long volume = 0;
+        for (int r = a; r < b; r++) volume += s.volume(r);
+        double avgVolume = (double) volume / (b - a);
+        double change = first == last ? Double.NaN : (s.close(last) / s.close(first) - 1) * 100;
+
+        if (c.minAvgVolume() != null && avgVolume < c.minAvgVolume()) return null;
+        boolean needsReturn = c.rankBy() == Metric.RETURN || c.minReturn() != null || c.maxReturn() != null;
+        if (needsReturn && !Double.isFinite(change)) return null;
+        if (c.minReturn() != null && change < c.minReturn()) return null;
+        if (c.maxReturn() != null && change > c.maxReturn()) return null;
+        double value = switch (c.rankBy()) {
+            case RETURN -> change;
+            case AVG_VOLUME -> avgVolume;
+            case CLOSE -> s.close(last);
+        };
+        return new Candidate(s, first, last, b - a, change, avgVolume, value);
+    }
+
+    private record Candidate(TickerSeries series, int first, int last, int rows, double change, double avgVolume,
+                             double value) {
+    }
+
+    private static Comparator<Candidate> order(boolean desc) {
+        Comparator<Candidate> byValue = Comparator.comparingDouble(Candidate::value);
+        return (desc ? byValue.reversed() : byValue)
+                .thenComparing(k -> k.series().getTicker());
+    }
+
+    /** Bounded heap of the best {@code limit} candidates; its head is the worst one kept. */
+    private static final class Heap {
+        private final int limit;
+        private final Comparator<Candidate> order;
+        private final PriorityQueue<Candidate> queue;
+        private int matched;
+
+        Heap(int limit, Comparator<Candidate> order) {
+            this.limit = limit;
+            this.order = order;
+            this.queue = new PriorityQueue<>(Math.min(limit, 64) + 1, order.reversed());
+        }
+
+        void offer(Candidate k) {
+            if (queue.size() < limit) {
+                queue.add(k);
+            } else if (order.compare(k, queue.peek()) < 0) {
+                queue.poll();
+                queue.add(k);
+            }
+        }
+
+        Heap merge(Heap other) {
+            matched += other.matched;
+            for (Candidate k : other.queue) offer(k);
+            return this;
+        }
+
+        List<Candidate> sorted() {
+            List<Candidate> out = new ArrayList<>(queue);
+            out.sort(order);
+            return out;
+        }
+    }
+
+    private static final class ScreenTask extends RecursiveTask<Heap> {
+        private static final long serialVersionUID = 1L;
+
+        private final TickerSeries[] series;
+        private final int lo;
+        private final int hi;
+        private final Criteria criteria;
+        private final int from;
+        private final int to;
+
+        ScreenTask(TickerSeries[] series, int lo, int hi, Criteria criteria, int from, int to) {
+            this.series = series;
+            this.lo = lo;
+            this.hi = hi;
+            this.criteria = criteria;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Heap compute() {
+            if (hi - lo <= LEAF) {
+                Heap heap = new Heap(criteria.limit(), order(criteria.desc()));
+                for (int i = lo; i < hi; i++) {
+                    Candidate k = evaluate(series[i], criteria, from, to);
+                    if (k == null) continue;
+                    heap.matched++;
+                    heap.offer(k);
+                }
+                return heap;
+            }
+            int mid = (lo + hi) >>> 1;
+            ScreenTask left = new ScreenTask(series, lo, mid, criteria, from, to);
+            left.fork();
+            Heap right = new ScreenTask(series, mid, hi, criteria, from, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.StockSnapshot;
+
+import java.util.Set;
+
+/**
+ * Published by {@link StockStore} after a new snapshot has been swapped in.
+ * {@code changedTickers} holds the tickers whose series differ from the previous snapshot.
+ */
+public class SnapshotChangedEvent {
+    private final StockSnapshot previous;
+    private final StockSnapshot current;
+    private final Set<String> changedTickers;
+
+    public SnapshotChangedEvent(StockSnapshot previous, StockSnapshot current, Set<String> changedTickers) {
+        this.previous = previous;
+        this.current = current;
+        this.changedTickers = changedTickers;
+    }
+
+    public StockSnapshot getPrevious() { return previous; }
+    public StockSnapshot getCurrent() { return current; }
+    public Set<String> getChangedTickers() { return changedTickers; }
+}
@@ -1,23 +1,45 @@
 package com.example.stocks.service;
 
+import com.example.stocks.model.Interval;
+import com.example.stocks.model.PageCursor;
+import com.example.stocks.model.QueryResult;
 import com.example.stocks.model.StockPrice;
+import com.example.stocks.model.StockSnapshot;
+import com.example.stocks.model.TickerFilter;
+import com.example.stocks.model.TickerSeries;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
+/**
+ * Answers list queries from the per-ticker index: each ticker is located by key, its date range
+ * is found by binary search, and date ordering comes from a k-way merge of the per-ticker slices.
+ * Only sorts by a price or volume column actually sort.
+ */
 @Service
 public class StockQueryService {
 
-    private final CsvStockLoader loader;
+    private final StockStore store;
+    private final WeightedLruCache<QueryKey, QueryResult> cache;
+    private final MeterRegistry meters;
 
-    public StockQueryService(CsvStockLoader loader) {
-        this.loader = loader;
+    public StockQueryService(StockStore store,
+                             @Value("${app.cache.query-max-bytes:67108864}") long cacheMaxBytes,
+                             MeterRegistry meters) {
+        this.store = store;
+        this.cache = new WeightedLruCache<>(cacheMaxBytes, StockQueryService::weigh);
+        this.meters = meters;
     }
 
     public List<StockPrice> query(Set<String> tickers,
@@ -25,38 +47,380 @@ public class StockQueryService {
                                   LocalDate endDate,
                                   String sortBy,
                                   String sortDir) {
-        List<StockPrice> all = loader.loadAll();
-        if (all.isEmpty()) return all;
+        return select(tickers, startDate, endDate, sortBy, sortDir).toList();
+    }
+
+    public QueryResult select(Set<String> tickers,
+                              LocalDate startDate,
+                              LocalDate endDate,
+                              String sortBy,
+                              String sortDir) {
+        return select(TickerFilter.of(tickers), startDate, endDate, sortBy, sortDir, Interval.DAY);
+    }
 
-        List<StockPrice> filtered = all.stream()
-                .filter(sp -> sp.getDate() != null && sp.getTicker() != null)
-                .filter(sp -> tickers == null || tickers.isEmpty() || tickers.contains(sp.getTicker()))
-                .filter(sp -> startDate == null || !sp.getDate().isBefore(startDate))
-                .filter(sp -> endDate == null || !sp.getDate().isAfter(endDate))
-                .collect(Collectors.toCollection(ArrayList::new));
+    /**
+     * Same as {@link #select(Set, LocalDate, LocalDate, String, String)} for the tickers matched by
+     * {@code filter}, over {@code interval} bars. A bar is included when its period overlaps the
+     * date range, and always covers its full period.
+     */
+    public QueryResult select(TickerFilter filter,
+                              LocalDate startDate,
+                              LocalDate endDate,
+                              String sortBy,
+                              String sortDir,
+                              Interval interval) {
+        StockSnapshot snapshot = store.snapshot();
+        String key = sortKey(sortBy);
+        boolean desc = "desc".equalsIgnoreCase(sortDir);
+        String variant = key + (desc ? " desc" : " asc") + (interval == Interval.DAY ? "" : " " + interval.code());
+        QueryKey cacheKey = QueryKey.of(snapshot, filter, bucketStart(startDate, interval), endDate, variant);
+        return cache.get(cacheKey, k -> timed("select", interval, filter, k.from(), k.to(),
+                () -> compute(snapshot, interval, filter, k.from(), k.to(), key, desc, 0, null)));
+    }
 
-        Comparator<StockPrice> comparator = buildComparator(sortBy);
-        if ("desc".equalsIgnoreCase(sortDir)) comparator = comparator.reversed();
-        filtered.sort(comparator);
-        return filtered;
+    private static LocalDate bucketStart(LocalDate date, Interval interval) {
+        if (date == null || interval == Interval.DAY) return date;
+        return LocalDate.ofEpochDay(interval.bucket((int) date.toEpochDay()));
     }
 
-    private Comparator<StockPrice> buildComparator(String sortBy) {
+    public WeightedLruCache<?, ?> getCache() {
+        return cache;
+    }
+
+    @EventListener
+    public void onSnapshotChanged(SnapshotChangedEvent event) {
+        // keys carry the snapshot version, so this only releases memory early
+        cache.clear();
+    }
+
+    /**
+     * Returns at most {@code limit} rows (all rows when {@code limit <= 0}) starting strictly after
+     * {@code after}. Date and ticker orders seek each slice to the cursor by binary search; price and
+     * volume orders keep only the best {@code limit} rows in a bounded heap instead of sorting.
+     *
+     * @throws IllegalArgumentException if the cursor was issued for a different sort
+     */
+    public QueryResult page(Set<String> tickers,
+                            LocalDate startDate,
+                            LocalDate endDate,
+                            String sortBy,
+                            String sortDir,
+                            int limit,
+                            PageCursor after) {
+        return page(TickerFilter.of(tickers), startDate, endDate, sortBy, sortDir, Interval.DAY, limit, after);
+    }
+
+    public QueryResult page(TickerFilter filter,
+                            LocalDate startDate,
+                            LocalDate endDate,
+                            String sortBy,
+                            String sortDir,
+                            Interval interval,
+                            int limit,
+                            PageCursor after) {
+        startDate = bucketStart(startDate, interval);
+        String key = sortKey(sortBy);
+        boolean desc = "desc".equalsIgnoreCase(sortDir);
+        if (after != null && (!after.getSortKey().equals(key) || after.isDesc() != desc)) {
+            throw new IllegalArgumentException("Cursor does not match sortBy/sortDir");
+        }
+        int from = startDate == null ? Integer.MIN_VALUE : (int) startDate.toEpochDay();
+        int to = endDate == null ? Integer.MAX_VALUE : (int) endDate.toEpochDay();
+        return timed("page", interval, filter, from, to,
+                () -> compute(store.snapshot(), interval, filter, from, to, key, desc, limit, after));
+    }
+
+    /**
+     * Records computation time (cache hits are not timed) tagged by filter shape and result size,
+     * and the result row count by filter shape. Sector and subsector filters count as "group".
+     */
+    private QueryResult timed(String op, Interval interval, TickerFilter filter, int from, int to,
+                              Supplier<QueryResult> query) {
+        int n = filter.getTickers().size();
+        String shape = filter.hasGroups() ? "group" : n == 0 ? "all" : n == 1 ? "one" : n <= 10 ? "few" : "many";
+        String range = from == Integer.MIN_VALUE && to == Integer.MAX_VALUE ? "full" : "bounded";
+        Timer.Sample sample = Timer.start(meters);
+        QueryResult result = query.get();
+        int rows = result.size();
+        String size = rows == 0 ? "empty" : rows <= 1_000 ? "small" : rows <= 100_000 ? "medium" : "large";
+        sample.stop(Timer.builder("stocks.query")
+                .tags("op", op, "interval", interval.code(), "tickers", shape, "range", range, "size", size)
+                .publishPercentileHistogram()
+                .register(meters));
+        DistributionSummary.builder("stocks.query.rows")
+                .tags("op", op, "tickers", shape, "range", range)
+                .register(meters)
+                .record(rows);
+        return result;
+    }
+
+    private QueryResult compute(StockSnapshot snapshot, Interval interval, TickerFilter filter, int from, int to,
+                                String key, boolean desc, int limit, PageCursor after) {
+        if (snapshot.isEmpty()) return QueryResult.empty();
+        List<TickerSeries> matched = snapshot.match(interval, filter);
+
+        int n = matched.size();
+        TickerSeries[] series = new TickerSeries[n];
+        int[] lo = new int[n];
+        int[] hi = new int[n];
+        int k = 0;
+        int total = 0;
+        for (TickerSeries s : matched) {
+            int a = s.lowerBound(from);
+            int b = s.upperBound(to);
+            if (after != null) {
+                int cmp = s.getTicker().compareTo(after.getTicker());
+                int day = after.getDay();
+                switch (key) {
+                    case "date" -> {
+                        if (desc) b = Math.min(b, cmp < 0 ? s.upperBound(day) : s.lowerBound(day));
+                        else a = Math.max(a, cmp > 0 ? s.lowerBound(day) : s.upperBound(day));
+                    }
+                    case "ticker" -> {
+                        if (desc ? cmp > 0 : cmp < 0) continue;
+                        if (cmp == 0) {
+                            if (desc) b = Math.min(b, s.lowerBound(day));
+                            else a = Math.max(a, s.upperBound(day));
+                        }
+                    }
+                    default -> { }
+                }
+            }
+            if (a >= b) continue;
+            series[k] = s;
+            lo[k] = a;
+            hi[k] = b;
+            total += b - a;
+            k++;
+        }
+        if (total == 0) return QueryResult.empty();
+        series = Arrays.copyOf(series, k);
+
+        int max = limit > 0 ? limit + 1 : Integer.MAX_VALUE;
+        long[] refs = switch (key) {
+            case "ticker" -> concat(k, lo, hi, total, desc, max);
+            case "date" -> mergeByDate(series, k, lo, hi, total, desc, max);
+            default -> after == null && limit <= 0
+                    ? sorted(series, k, lo, hi, total, key, desc)
+                    : topK(series, k, lo, hi, total, key, desc, max, after);
+        };
+        PageCursor next = null;
+        if (limit > 0 && refs.length > limit) {
+            refs = Arrays.copyOf(refs, limit);
+            long last = refs[limit - 1];
+            next = PageCursor.at(key, desc, at(series, last), row(last));
+        }
+        return new QueryResult(series, refs, next);
+    }
+
+    private static long weigh(QueryResult r) {
+        return 64L + 8L * r.size() + 8L * r.getSeries().length;
+    }
+
+    static String sortKey(String sortBy) {
         String key = sortBy == null ? "date" : sortBy.toLowerCase(Locale.ROOT);
         return switch (key) {
-            case "ticker" -> Comparator.comparing(StockPrice::getTicker, Comparator.nullsLast(String::compareTo));
-            case "open" -> Comparator.comparing(sp -> valueOrNull(sp.getOpen()));
-            case "high" -> Comparator.comparing(sp -> valueOrNull(sp.getHigh()));
-            case "low" -> Comparator.comparing(sp -> valueOrNull(sp.getLow()));
-            case "close" -> Comparator.comparing(sp -> valueOrNull(sp.getClose()));
-            case "volume" -> Comparator.comparing(StockPrice::getVolume);
-            default -> Comparator.comparing(StockPrice::getDate, Comparator.nullsLast(LocalDate::compareTo));
+            case "ticker", "open", "high", "low", "close", "volume" -> key;
+            default -> "date";
         };
     }
 
-    private Double valueOrNull(java.math.BigDecimal d) {
-        return d == null ? null : d.doubleValue();
+    // series are in ticker order and each slice is in date order, so concatenation is already sorted
+    private long[] concat(int k, int[] lo, int[] hi, int total, boolean desc, int max) {
+        long[] refs = new long[Math.min(total, max)];
+        int n = 0;
+        if (desc) {
+            for (int s = k - 1; s >= 0 && n < refs.length; s--) {
+                for (int r = hi[s] - 1; r >= lo[s] && n < refs.length; r--) refs[n++] = QueryResult.ref(s, r);
+            }
+        } else {
+            for (int s = 0; s < k && n < refs.length; s++) {
+                for (int r = lo[s]; r < hi[s] && n < refs.length; r++) refs[n++] = QueryResult.ref(s, r);
+            }
+        }
+        return refs;
     }
-}
 
+    /** K-way merge on (date, ticker) using a binary heap of slice cursors. */
+    private long[] mergeByDate(TickerSeries[] series, int k, int[] lo, int[] hi, int total, boolean desc, int max) {
+        if (k == 1) return concat(k, lo, hi, total, desc, max);
+        int[] cursor = new int[k];
+        int[] end = new int[k];
+        int[] heap = new int[k];
+        for (int s = 0; s < k; s++) {
+            cursor[s] = desc ? hi[s] - 1 : lo[s];
+            end[s] = desc ? lo[s] - 1 : hi[s];
+            heap[s] = s;
+        }
+        int size = k;
+        for (int i = size / 2 - 1; i >= 0; i--) siftDown(heap, i, size, series, cursor, desc);
 
+        long[] refs = new long[Math.min(total, max)];
+        int step = desc ? -1 : 1;
+        for (int n = 0; n < refs.length; n++) {
+            int s = heap[0];
+            refs[n] = QueryResult.ref(s, cursor[s]);
+            cursor[s] += step;
+            if (cursor[s] == end[s]) heap[0] = heap[--size];
+            siftDown(heap, 0, size, series, cursor, desc);
+        }
+        return refs;
+    }
+
+    private static void siftDown(int[] heap, int i, int size, TickerSeries[] series, int[] cursor, boolean desc) {
+        while (true) {
+            int l = 2 * i + 1;
+            if (l >= size) return;
+            int c = l + 1 < size && before(heap[l + 1], heap[l], series, cursor, desc) ? l + 1 : l;
+            if (!before(heap[c], heap[i], series, cursor, desc)) return;
+            int tmp = heap[i];
+            heap[i] = heap[c];
+            heap[c] = tmp;
+            i = c;
+        }
+    }
+
+    private static boolean before(int a, int b, TickerSeries[] series, int[] cursor, boolean desc) {
+        int da = series[a].day(cursor[a]);
+        int db = series[b].day(cursor[b]);
+        if (da != db) return desc ? da > db : da < db;
+        return desc ? a > b : a < b;
+    }
+
+    private long[] sorted(TickerSeries[] series, int k, int[] lo, int[] hi, int total, String key, boolean desc) {
+        long[] refs = concat(k, lo, hi, total, false, Integer.MAX_VALUE);
+        mergeSort(refs, new long[refs.length], 0, refs.length, comparator(series, key, desc));
+        return refs;
+    }
+
+    /**
+     * Top-K selection: keeps the first {@code max} rows after the cursor in a max-heap whose root
+     * is the worst row kept, then sorts only those. O(n log max) instead of O(n log n).
+     */
+    private long[] topK(TickerSeries[] series, int k, int[] lo, int[] hi, int total, String key,
+                        boolean desc, int max, PageCursor after) {
+        RefComparator order = comparator(series, key, desc);
+        long[] heap = new long[Math.min(total, max)];
+        int size = 0;
+        for (int s = 0; s < k; s++) {
+            for (int r = lo[s]; r < hi[s]; r++) {
+                if (after != null) {
+                    if (compareToCursor(series[s], r, key, desc, after) <= 0) continue;
+                }
+                long ref = QueryResult.ref(s, r);
+                if (size < heap.length) {
+                    int i = size++;
+                    heap[i] = ref;
+                    while (i > 0) {
+                        int parent = (i - 1) >>> 1;
+                        if (order.compare(heap[i], heap[parent]) <= 0) break;
+                        long t = heap[i];
+                        heap[i] = heap[parent];
+                        heap[parent] = t;
+                        i = parent;
+                    }
+                } else if (order.compare(ref, heap[0]) < 0) {
+                    heap[0] = ref;
+                    int i = 0;
+                    while (true) {
+                        int l = 2 * i + 1;
+                        if (l >= size) break;
+                        int c = l + 1 < size && order.compare(heap[l + 1], heap[l]) > 0 ? l + 1 : l;
+                        if (order.compare(heap[c], heap[i]) <= 0) break;
+                        long t = heap[i];
+                        heap[i] = heap[c];
+                        heap[c] = t;
+                        i = c;
+                    }
+                }
+            }
+        }
+        long[] refs = Arrays.copyOf(heap, size);
+        mergeSort(refs, new long[size], 0, size, order);
+        return refs;
+    }
+
+    /** Position of a row relative to the cursor in result order: negative when it comes first. */
+    private static int compareToCursor(TickerSeries s, int row, String key, boolean desc, PageCursor c) {
+        int cmp = switch (key) {
+            case "open" -> compareValues(s.open(row), c.getDoubleValue(), desc);
+            case "high" -> compareValues(s.high(row), c.getDoubleValue(), desc);
+            case "low" -> compareValues(s.low(row), c.getDoubleValue(), desc);
+            case "close" -> compareValues(s.close(row), c.getDoubleValue(), desc);
+            case "volume" -> desc ? Long.compare(c.getValue(), s.volume(row)) : Long.compare(s.volume(row), c.getValue());
+            default -> 0;
+        };
+        if (cmp != 0) return cmp;
+        cmp = s.getTicker().compareTo(c.getTicker());
+        if (cmp == 0) cmp = Integer.compare(s.day(row), c.getDay());
+        return desc ? -cmp : cmp;
+    }
+
+    /**
+     * Result order on the sort column with (ticker, date) as tie-breaker, both reversed for
+     * {@code desc}; missing prices sort last in either direction.
+     */
+    private RefComparator comparator(TickerSeries[] series, String key, boolean desc) {
+        RefComparator byValue = switch (key) {
+            case "open" -> (a, b) -> compareValues(at(series, a).open(row(a)), at(series, b).open(row(b)), desc);
+            case "high" -> (a, b) -> compareValues(at(series, a).high(row(a)), at(series, b).high(row(b)), desc);
+            case "low" -> (a, b) -> compareValues(at(series, a).low(row(a)), at(series, b).low(row(b)), desc);
+            case "close" -> (a, b) -> compareValues(at(series, a).close(row(a)), at(series, b).close(row(b)), desc);
+            case "volume" -> (a, b) -> desc
+                    ? Long.compare(at(series, b).volume(row(b)), at(series, a).volume(row(a)))
+                    : Long.compare(at(series, a).volume(row(a)), at(series, b).volume(row(b)));
+            default -> (a, b) -> 0;
+        };
+        // refs are (series index, row) and series are in ticker order, so ref order is (ticker, date)
+        return (a, b) -> {
+            int c = byValue.compare(a, b);
+            if (c != 0) return c;
+            return desc ? Long.compare(b, a) : Long.compare(a, b);
+        };
+    }
+
+    // NaN (a missing price) after every number whatever the direction
+    private static int compareValues(double a, double b, boolean desc) {
+        boolean na = Double.isNaN(a);
+        boolean nb = Double.isNaN(b);
+        if (na || nb) return na == nb ? 0 : na ? 1 : -1;
+        return desc ? Double.compare(b, a) : Double.compare(a, b);
+    }
+
+    private static TickerSeries at(TickerSeries[] series, long ref) {
+        return series[(int) (ref >>> 32)];
+    }
+
+    private static int row(long ref) {
+        return (int) ref;
+    }
+
+    private static void mergeSort(long[] a, long[] tmp, int from, int to, RefComparator cmp) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                long v = a[i];
+                int j = i - 1;
+                while (j >= from && cmp.compare(a[j], v) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = v;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, tmp, from, mid, cmp);
+        mergeSort(a, tmp, mid, to, cmp);
+        if (cmp.compare(a[mid - 1], a[mid]) <= 0) return;
+        System.arraycopy(a, from, tmp, from, to - from);
+        int i = from, j = mid, n = from;
+        while (i < mid && j < to) a[n++] = cmp.compare(tmp[j], tmp[i]) < 0 ? tmp[j++] : tmp[i++];
+        while (i < mid) a[n++] = tmp[i++];
+        while (j < to) a[n++] = tmp[j++];
+    }
+
+    @FunctionalInterface
+    interface RefComparator {
+        int compare(long a, long b);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.Interval;
+import com.example.stocks.model.Listing;
+import com.example.stocks.model.StockSnapshot;
+import com.example.stocks.model.TickerSeries;
+import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the resident, columnar copy of all CSV data. Built once at startup so that queries never
+ * touch the file system; later changes are applied per file and published as a new immutable
+ * snapshot, so readers never block and never observe a partial update.
+ */
+@Service
+public class StockStore {
+
+    private static final Logger log = LoggerFactory.getLogger(StockStore.class);
+
+    private final CsvStockLoader loader;
+    private final ApplicationEventPublisher events;
+    private final MeterRegistry meters;
+    private final AtomicReference<StockSnapshot> current = new AtomicReference<>(StockSnapshot.empty());
+    private volatile long lastModified;
+
+    public StockStore(CsvStockLoader loader, ApplicationEventPublisher events, MeterRegistry meters) {
+        this.loader = loader;
+        this.events = events;
+        this.meters = meters;
+        Gauge.builder("stocks.store.rows", current, c -> c.get().getRowCount()).register(meters);
+        Gauge.builder("stocks.store.tickers", current, c -> c.get().getSeries().size()).register(meters);
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        meters.timer("stocks.store.load").record(this::loadAll);
+    }
+
+    private void loadAll() {
+        Map<String, Map<String, TickerSeries>> files = new TreeMap<>(loader.loadFiles(loader.listCsvFiles()));
+        Set<String> tickers = new HashSet<>();
+        files.values().forEach(f -> tickers.addAll(f.keySet()));
+        Map<String, TickerSeries> series = new HashMap<>();
+        for (String t : tickers) series.put(t, merge(files, t));
+        tickers.addAll(current.get().getSeries().keySet());
+        publish(files, series, tickers, loader.loadReference());
+    }
+
+    /**
+     * Re-parses a single CSV (or drops it when it no longer exists) and rebuilds only the tickers
+     * it contributed to before or after the change. A change to the reference table only replaces
+     * the listings.
+     */
+    public synchronized void reloadFile(Path path) {
+        StockSnapshot old = current.get();
+        if (loader.isReference(path)) {
+            publish(old.getFiles(), old.getSeries(), Set.of(), loader.loadReference());
+            log.info("Reloaded reference table {}", path.getFileName());
+            return;
+        }
+        String name = path.getFileName().toString();
+        Map<String, Map<String, TickerSeries>> files = new TreeMap<>(old.getFiles());
+        Map<String, TickerSeries> before = files.remove(name);
+        Map<String, TickerSeries> after = Files.isRegularFile(path) ? loader.loadFile(path) : null;
+        if (before == null && after == null) return;
+        if (after != null) files.put(name, after);
+
+        Set<String> affected = new HashSet<>();
+        if (before != null) affected.addAll(before.keySet());
+        if (after != null) affected.addAll(after.keySet());
+        Map<String, TickerSeries> series = new HashMap<>(old.getSeries());
+        for (String t : affected) {
+            TickerSeries merged = merge(files, t);
+            TickerSeries previous = old.getSeries().get(t);
+            if (merged == null) series.remove(t);
+            else series.put(t, previous == null ? merged : merged.derivedFrom(previous));
+        }
+        publish(files, series, affected, old.getListings());
+        log.info("Reloaded {} ({} tickers affected)", name, affected.size());
+    }
+
+    public StockSnapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Epoch millis of the newest CSV under the root when the current snapshot was published. Never
+     * moves backwards: a change that leaves no newer file behind (e.g. a deleted CSV) uses the
+     * publish time instead. Read it after {@link #snapshot()} to get a value at least that recent.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    private void publish(Map<String, Map<String, TickerSeries>> files, Map<String, TickerSeries> series,
+                         Set<String> changed, Map<String, Listing> listings) {
+        StockSnapshot old = current.get();
+        StockSnapshot next = new StockSnapshot(old.getVersion() + 1, files, series, rollups(old, series, changed),
+                listings);
+        long newest = loader.newestModified();
+        lastModified = newest > lastModified || old.getVersion() == 0 ? newest : System.currentTimeMillis();
+        current.set(next);
+        events.publishEvent(new SnapshotChangedEvent(old, next, Collections.unmodifiableSet(changed)));
+    }
+
+    // unchanged tickers keep their bars; changed ones re-aggregate from the first differing day on
+    private static Map<Interval, Map<String, TickerSeries>> rollups(StockSnapshot old, Map<String, TickerSeries> series,
+                                                                     Set<String> changed) {
+        Map<Interval, Map<String, TickerSeries>> rollups = new EnumMap<>(Interval.class);
+        for (Interval interval : Interval.values()) {
+            if (interval == Interval.DAY) continue;
+            Map<String, TickerSeries> before = old.series(interval);
+            Map<String, TickerSeries> bars = new HashMap<>();
+            series.forEach((ticker, s) -> {
+                TickerSeries previous = before.get(ticker);
+                bars.put(ticker, !changed.contains(ticker) && previous != null
+                        ? previous
+                        : s.rollup(interval, old.getSeries().get(ticker), previous));
+            });
+            rollups.put(interval, bars);
+        }
+        return rollups;
+    }
+
+    // files are iterated in name order, so rows of later files win on the same (ticker, date)
+    private static TickerSeries merge(Map<String, Map<String, TickerSeries>> files, String ticker) {
+        List<TickerSeries> parts = new ArrayList<>();
+        for (Map<String, TickerSeries> f : files.values()) {
+            TickerSeries s = f.get(ticker);
+            if (s != null && s.size() > 0) parts.add(s);
+        }
+        if (parts.isEmpty()) return null;
+        if (parts.size() == 1) return parts.get(0);
+        TickerSeries.Builder b = TickerSeries.builder(ticker);
+        for (TickerSeries s : parts) b.addAll(s);
+        return b.build();
+    }
+}
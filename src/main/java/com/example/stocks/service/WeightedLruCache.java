@@ -0,0 +1,145 @@
+package com.example.stocks.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * LRU cache bounded by the estimated memory of its values rather than by entry count. A value
+ * heavier than the whole budget is returned but not stored. Concurrent loads of the same key are
+ * coalesced: the first caller computes, the others wait for its result.
+ */
+public class WeightedLruCache<K, V> {
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+    // one future per computation in progress, removed as soon as it completes
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public WeightedLruCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the cached value or computes it. The computation runs outside the lock; callers
+     * missing on a key that is already being computed wait for that computation instead of
+     * starting their own (counted as {@link #coalesced}, not as misses) and receive its value or
+     * its exception. This also holds when the cache is disabled or the value is too heavy to keep.
+     */
+    public V get(K key, Function<K, V> loader) {
+        V cached = maxWeight > 0 ? peek(key) : null;
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalesced.increment();
+            return await(leader);
+        }
+        try {
+            // a computation may have finished between the lookup above and registering this one
+            cached = maxWeight > 0 ? peek(key) : null;
+            if (cached != null) {
+                hits.increment();
+                flight.complete(cached);
+                return cached;
+            }
+            misses.increment();
+            V value = loader.apply(key);
+            put(key, value);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the cached value or {@code null}, counting a hit or a miss; for callers that can only
+     * produce the value somewhere else and {@link #put} it afterwards.
+     */
+    public V getIfPresent(K key) {
+        V value = peek(key);
+        if (value != null) hits.increment();
+        else misses.increment();
+        return value;
+    }
+
+    /** Returns the cached value without loading and without touching the hit/miss counters. */
+    public synchronized V peek(K key) {
+        Entry<V> e = map.get(key);
+        return e == null ? null : e.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        long w = weigher.applyAsLong(value);
+        if (w > maxWeight) return;
+        Entry<V> old = map.put(key, new Entry<>(value, w));
+        if (old != null) weight -= old.weight;
+        weight += w;
+        Iterator<Entry<V>> it = map.values().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Entry<V> eldest = it.next();
+            it.remove();
+            weight -= eldest.weight;
+            evictions.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        map.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() { return map.size(); }
+    public synchronized long weight() { return weight; }
+    public long maxWeight() { return maxWeight; }
+    public long hits() { return hits.sum(); }
+    public long misses() { return misses.sum(); }
+    public long evictions() { return evictions.sum(); }
+    public long coalesced() { return coalesced.sum(); }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("entries", size());
+        m.put("weightBytes", weight());
+        m.put("maxWeightBytes", maxWeight);
+        m.put("hits", hits());
+        m.put("misses", misses());
+        m.put("evictions", evictions());
+        m.put("coalesced", coalesced());
+        return m;
+    }
+
+    private record Entry<V>(V value, long weight) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.stocks.web;
+
+import com.example.stocks.model.ChartData;
+import com.example.stocks.web.dto.CompactChartResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact chart encodings: a base date plus day deltas instead of ISO strings, and per ticker
+ * only the valid closes plus a validity bitmap instead of null-padded boxed lists.
+ *
+ * <p>Binary layout (big-endian): magic {@code "SCHT"}, version byte, base epoch day (int),
+ * point count (int), deltas as unsigned LEB128 varints, ticker count (int), then per ticker its
+ * UTF-8 name (short length + bytes), the validity bitmap ({@code ceil(points / 8)} bytes, LSB
+ * first) and one double per set bit.
+ */
+final class CompactChartEncoder {
+
+    static final int BINARY_VERSION = 1;
+
+    private CompactChartEncoder() {
+    }
+
+    static CompactChartResponse toJson(ChartData data) {
+        int[] days = data.getDays();
+        Map<String, double[]> values = new LinkedHashMap<>();
+        Map<String, String> validity = new LinkedHashMap<>();
+        Base64.Encoder b64 = Base64.getEncoder();
+        for (int t = 0; t < data.getTickers().size(); t++) {
+            double[] v = data.getValues()[t];
+            values.put(data.getTickers().get(t), validValues(v));
+            validity.put(data.getTickers().get(t), b64.encodeToString(bitmap(v)));
+        }
+        String base = days.length == 0 ? null : LocalDate.ofEpochDay(days[0]).toString();
+        return new CompactChartResponse(base, deltas(days), data.getTickers(), values, validity);
+    }
+
+    static byte[] toBinary(ChartData data) throws IOException {
+        int[] days = data.getDays();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + days.length * (1 + 8 * data.getTickers().size()));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes("SCHT");
+        out.writeByte(BINARY_VERSION);
+        out.writeInt(days.length == 0 ? 0 : days[0]);
+        out.writeInt(days.length);
+        for (int d : deltas(days)) writeVarint(out, d);
+        out.writeInt(data.getTickers().size());
+        for (int t = 0; t < data.getTickers().size(); t++) {
+            byte[] name = data.getTickers().get(t).getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+            double[] v = data.getValues()[t];
+            out.write(bitmap(v));
+            for (double d : v) {
+                if (!Double.isNaN(d)) out.writeDouble(d);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int[] deltas(int[] days) {
+        int[] deltas = new int[days.length];
+        for (int i = 1; i < days.length; i++) deltas[i] = days[i] - days[i - 1];
+        return deltas;
+    }
+
+    private static byte[] bitmap(double[] v) {
+        byte[] bits = new byte[(v.length + 7) >>> 3];
+        for (int i = 0; i < v.length; i++) {
+            if (!Double.isNaN(v[i])) bits[i >>> 3] |= (byte) (1 << (i & 7));
+        }
+        return bits;
+    }
+
+    private static double[] validValues(double[] v) {
+        double[] valid = new double[v.length];
+        int n = 0;
+        for (double d : v) {
+            if (!Double.isNaN(d)) valid[n++] = d;
+        }
+        return Arrays.copyOf(valid, n);
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.stocks.web;
+
+import com.example.stocks.config.ExecutionMode;
+import com.example.stocks.model.Interval;
+import com.example.stocks.model.StockPrice;
+import com.example.stocks.model.StockSnapshot;
+import com.example.stocks.model.TickerFilter;
+import com.example.stocks.model.TickerSeries;
+import com.example.stocks.service.SnapshotChangedEvent;
+import com.example.stocks.service.StockStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Fans snapshot changes out to Server-Sent Event subscribers. Each change is diffed once per
+ * interval in use (first differing bar per changed ticker) and offered to every subscriber whose
+ * filter covers the ticker, without blocking the publishing thread. A subscriber's pending
+ * changes are coalesced per ticker, so a slow client receives the latest bars since its last
+ * event in one message; when more than {@code app.stream.buffer-tickers} tickers pile up, its
+ * backlog is dropped and it is told to reload instead. Writes run on a per-client drain task. In
+ * platform mode those tasks share {@code app.stream.sender-threads} threads, independent of
+ * {@code app.stream.max-clients}: a stalled connection holds one sender until the connector's
+ * write timeout fails it, and meanwhile the changes for other clients only coalesce in their
+ * buffers. In virtual mode every drain task gets its own virtual thread.
+ */
+@Component
+public class LiveFeedBroadcaster {
+
+    private final StockStore store;
+    private final ExecutorService sender;
+    private final int bufferTickers;
+    private final long timeoutMs;
+    private final int maxClients;
+    private final MeterRegistry meters;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public LiveFeedBroadcaster(StockStore store,
+                               ExecutionMode execution,
+                               @Value("${app.stream.sender-threads:8}") int senderThreads,
+                               @Value("${app.stream.buffer-tickers:256}") int bufferTickers,
+                               @Value("${app.stream.timeout-ms:1800000}") long timeoutMs,
+                               @Value("${app.stream.max-clients:1000}") int maxClients,
+                               MeterRegistry meters) {
+        this(store, execution.isVirtual()
+                        ? execution.newBlockingExecutor("sse-")
+                        : Executors.newFixedThreadPool(Math.max(1, senderThreads), execution.threadFactory("sse-")),
+                bufferTickers, timeoutMs, maxClients, meters);
+    }
+
+    LiveFeedBroadcaster(StockStore store, ExecutorService sender, int bufferTickers, long timeoutMs,
+                        int maxClients, MeterRegistry meters) {
+        this.store = store;
+        this.sender = sender;
+        this.bufferTickers = bufferTickers;
+        this.timeoutMs = timeoutMs;
+        this.maxClients = maxClients;
+        this.meters = meters;
+        Gauge.builder("stocks.stream.clients", subscribers, Set::size).register(meters);
+    }
+
+    /** @throws RejectedExecutionException when {@code app.stream.max-clients} are already connected */
+    public SseEmitter subscribe(TickerFilter filter, Interval interval) {
+        if (subscribers.size() >= maxClients) {
+            throw new RejectedExecutionException("Too many stream subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber s = new Subscriber(emitter, filter, interval, store.snapshot().getVersion());
+        emitter.onCompletion(() -> subscribers.remove(s));
+        emitter.onTimeout(() -> subscribers.remove(s));
+        emitter.onError(e -> subscribers.remove(s));
+        subscribers.add(s);
+        schedule(s);
+        return emitter;
+    }
+
+    @EventListener
+    public void onSnapshotChanged(SnapshotChangedEvent event) {
+        if (subscribers.isEmpty() || event.getChangedTickers().isEmpty()) return;
+        StockSnapshot previous = event.getPrevious();
+        StockSnapshot current = event.getCurrent();
+        Map<Interval, List<Change>> diffs = new EnumMap<>(Interval.class);
+        for (Subscriber s : subscribers) {
+            List<Change> changes = diffs.computeIfAbsent(s.interval,
+                    i -> diff(previous, current, event.getChangedTickers(), i));
+            if (changes.isEmpty()) continue;
+            BitSet ids = current.getIndex().resolve(s.filter);
+            BitSet removedIds = null;
+            boolean any = false;
+            synchronized (s) {
+                for (Change c : changes) {
+                    boolean covered;
+                    if (c.series() != null) {
+                        covered = ids == null || ids.get(current.getIndex().id(c.ticker()));
+                    } else {
+                        if (removedIds == null) removedIds = previous.getIndex().resolve(s.filter);
+                        int id = previous.getIndex().id(c.ticker());
+                        covered = removedIds == null || (id >= 0 && removedIds.get(id));
+                    }
+                    if (!covered) continue;
+                    s.offer(c, bufferTickers);
+                    any = true;
+                }
+                s.version = current.getVersion();
+            }
+            if (any) schedule(s);
+        }
+    }
+
+    /** Comment frames keep proxies from closing idle streams and reveal disconnected clients. */
+    @Scheduled(fixedDelayString = "${app.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Subscriber s : subscribers) {
+            synchronized (s) {
+                s.heartbeat = true;
+            }
+            schedule(s);
+        }
+    }
+
+    // first differing bar per changed ticker; Integer.MIN_VALUE marks a ticker that was added or removed
+    private static List<Change> diff(StockSnapshot previous, StockSnapshot current, Set<String> changed,
+                                     Interval interval) {
+        Map<String, TickerSeries> before = previous.series(interval);
+        Map<String, TickerSeries> after = current.series(interval);
+        List<Change> changes = new ArrayList<>();
+        for (String t : new TreeSet<>(changed)) {
+            TickerSeries a = after.get(t);
+            TickerSeries b = before.get(t);
+            if (a == null || b == null) {
+                if (a != null || b != null) changes.add(new Change(t, a, Integer.MIN_VALUE));
+                continue;
+            }
+            int m = a.mismatch(b);
+            if (m == a.size() && m == b.size()) continue;
+            changes.add(new Change(t, a, m < a.size() ? a.day(m) : b.day(m)));
+        }
+        return changes;
+    }
+
+    private void schedule(Subscriber s) {
+        synchronized (s) {
+            if (s.scheduled) return;
+            s.scheduled = true;
+        }
+        try {
+            sender.execute(() -> drain(s));
+        } catch (RejectedExecutionException e) {
+            // shutting down
+            subscribers.remove(s);
+        }
+    }
+
+    /** Sends whatever is pending until nothing is left; changes arriving meanwhile coalesce. */
+    private void drain(Subscriber s) {
+        while (true) {
+            boolean hello, resync, heartbeat;
+            long version;
+            List<Change> batch;
+            synchronized (s) {
+                hello = s.hello;
+                resync = s.resync;
+                heartbeat = s.heartbeat;
+                version = s.version;
+                batch = new ArrayList<>(s.pending.values());
+                if (!hello && !resync && !heartbeat && batch.isEmpty()) {
+                    s.scheduled = false;
+                    return;
+                }
+                s.hello = s.resync = s.heartbeat = false;
+                s.pending.clear();
+            }
+            try {
+                if (hello) {
+                    send(s, "hello", version, Map.of("version", version, "interval", s.interval.code()));
+                }
+                if (resync) {
+                    send(s, "resync", version, Map.of("version", version));
+                } else if (!batch.isEmpty()) {
+                    send(s, "bars", version, payload(s, version, batch));
+                } else if (heartbeat) {
+                    s.emitter.send(SseEmitter.event().comment("ping"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // client went away or the emitter already completed
+                subscribers.remove(s);
+                s.emitter.completeWithError(e);
+                synchronized (s) {
+                    s.scheduled = false;
+                }
+                return;
+            }
+        }
+    }
+
+    private void send(Subscriber s, String name, long version, Object data) throws IOException {
+        s.emitter.send(SseEmitter.event().name(name).id(Long.toString(version)).data(data, MediaType.APPLICATION_JSON));
+        meters.counter("stocks.stream.events", "type", name).increment();
+    }
+
+    /**
+     * {@code updates[].bars} replace the client's bars on or after {@code updates[].from}; a null
+     * {@code from} replaces the ticker's whole series.
+     */
+    private static Map<String, Object> payload(Subscriber s, long version, List<Change> batch) {
+        List<Map<String, Object>> updates = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        for (Change c : batch) {
+            if (c.series() == null) {
+                removed.add(c.ticker());
+                continue;
+            }
+            TickerSeries series = c.series();
+            List<StockPrice> bars = new ArrayList<>();
+            for (int r = series.lowerBound(c.from()); r < series.size(); r++) bars.add(series.toStockPrice(r));
+            Map<String, Object> u = new LinkedHashMap<>();
+            u.put("ticker", c.ticker());
+            u.put("from", c.from() == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(c.from()));
+            u.put("bars", bars);
+            updates.add(u);
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("version", version);
+        data.put("interval", s.interval.code());
+        data.put("updates", updates);
+        data.put("removed", removed);
+        return data;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber s : subscribers) s.emitter.complete();
+        subscribers.clear();
+        sender.shutdown();
+    }
+
+    /** @param series the ticker's bars after the change, or null when it was removed */
+    private record Change(String ticker, TickerSeries series, int from) {
+        Change merge(Change newer) {
+            return new Change(ticker, newer.series, Math.min(from, newer.from));
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final TickerFilter filter;
+        final Interval interval;
+        final LinkedHashMap<String, Change> pending = new LinkedHashMap<>();
+        long version;
+        boolean hello = true;
+        boolean resync;
+        boolean heartbeat;
+        boolean scheduled;
+
+        Subscriber(SseEmitter emitter, TickerFilter filter, Interval interval, long version) {
+            this.emitter = emitter;
+            this.filter = filter;
+            this.interval = interval;
+            this.version = version;
+        }
+
+        // caller holds the lock
+        void offer(Change c, int limit) {
+            if (resync) return;
+            Change old = pending.get(c.ticker());
+            pending.put(c.ticker(), old == null ? c : old.merge(c));
+            if (pending.size() > limit) {
+                pending.clear();
+                resync = true;
+                meters.counter("stocks.stream.overflow").increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.stocks.web;
+
+import com.example.stocks.service.SnapshotChangedEvent;
+import com.example.stocks.service.StockStore;
+import com.example.stocks.service.WeightedLruCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Conditional GET and compressed-body caching for the read endpoints. Their responses depend only
+ * on the data snapshot and the query, so the ETag is a digest of the snapshot version, the newest
+ * CSV mtime and the normalized query, and {@code Last-Modified} is that mtime. A matching
+ * {@code If-None-Match} (or, without one, {@code If-Modified-Since}) is answered with 304 before
+ * the controller runs. Otherwise 200 bodies are gzip-compressed once and kept in a weighted LRU
+ * under their ETag, so repeat views of unchanged data are served without recomputing or
+ * recompressing. Only bodies up to {@code app.http.cache-max-body-bytes} are buffered: a larger
+ * one is passed through to the client as soon as it crosses that size and is not cached, and
+ * streaming list formats get the headers but are never buffered.
+ */
+@Component
+public class SnapshotCachingFilter extends OncePerRequestFilter {
+
+    private static final Set<String> PATHS = Set.of("/api/stocks/list", "/api/stocks/chart", "/api/stocks/screen");
+    private static final Set<String> LIST_PARAMS = Set.of("tickers", "sector", "subsector");
+    private static final String GZIP = "gzip";
+    private static final String GZIP_SUFFIX = "-gz";
+
+    private final StockStore store;
+    private final WeightedLruCache<String, CachedBody> bodies;
+    private final String cacheControl;
+    private final int gzipMinBytes;
+    private final int maxBodyBytes;
+    private final MeterRegistry meters;
+
+    public SnapshotCachingFilter(StockStore store,
+                                 @Value("${app.cache.http-max-bytes:33554432}") long cacheMaxBytes,
+                                 @Value("${app.http.cache-control:no-cache}") String cacheControl,
+                                 @Value("${app.http.gzip-min-bytes:1024}") int gzipMinBytes,
+                                 @Value("${app.http.cache-max-body-bytes:4194304}") int maxBodyBytes,
+                                 MeterRegistry meters) {
+        this.store = store;
+        this.bodies = new WeightedLruCache<>(cacheMaxBytes, b -> 64L + b.body().length);
+        this.cacheControl = cacheControl;
+        this.gzipMinBytes = gzipMinBytes;
+        // anything larger could not be kept in the cache anyway
+        this.maxBodyBytes = (int) Math.max(0, Math.min(maxBodyBytes, cacheMaxBytes - 64));
+        this.meters = meters;
+    }
+
+    public WeightedLruCache<?, ?> getCache() {
+        return bodies;
+    }
+
+    @EventListener
+    public void onSnapshotChanged(SnapshotChangedEvent event) {
+        // tags carry the snapshot version, so this only releases memory early
+        bodies.clear();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !"GET".equals(request.getMethod()) || !PATHS.contains(path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long version = store.snapshot().getVersion();
+        long modified = store.getLastModified();
+        String tag = etag(version, modified, normalize(request));
+        String gzipTag = tag.substring(0, tag.length() - 1) + GZIP_SUFFIX + "\"";
+        boolean acceptsGzip = acceptsGzip(request);
+
+        if (notModified(request, tag, gzipTag, modified)) {
+            headers(response, tag, modified);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            count("not_modified");
+            return;
+        }
+        if (isStreaming(request) || maxBodyBytes == 0) {
+            headers(response, tag, modified);
+            count("bypass");
+            chain.doFilter(request, response);
+            return;
+        }
+        CachedBody cached = bodies.getIfPresent(tag);
+        if (cached != null) {
+            count("hit");
+            write(response, cached, tag, gzipTag, modified, acceptsGzip);
+            return;
+        }
+
+        BoundedBodyWrapper wrapper = new BoundedBodyWrapper(response, maxBodyBytes, () -> {
+            if (response.getStatus() == HttpServletResponse.SC_OK) headers(response, tag, modified);
+        });
+        chain.doFilter(request, wrapper);
+        wrapper.flushWriter();
+        if (wrapper.isPassedThrough()) {
+            count("bypass");
+            return;
+        }
+        // a body computed while the snapshot changed may not match the tag taken before it
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || store.snapshot().getVersion() != version) {
+            count("bypass");
+            byte[] raw = wrapper.body();
+            if (!response.isCommitted()) response.setContentLength(raw.length);
+            response.getOutputStream().write(raw);
+            return;
+        }
+        count("miss");
+        CachedBody body = compress(wrapper.getContentType(), wrapper.body());
+        bodies.put(tag, body);
+        write(response, body, tag, gzipTag, modified, acceptsGzip);
+    }
+
+    private void write(HttpServletResponse response, CachedBody body, String tag, String gzipTag, long modified,
+                       boolean acceptsGzip) throws IOException {
+        byte[] out = body.body();
+        if (body.gzip() && acceptsGzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+            headers(response, gzipTag, modified);
+        } else {
+            if (body.gzip()) out = gunzip(out);
+            headers(response, tag, modified);
+        }
+        if (body.contentType() != null) response.setContentType(body.contentType());
+        response.setContentLength(out.length);
+        response.getOutputStream().write(out);
+    }
+
+    private void headers(HttpServletResponse response, String tag, long modified) {
+        response.setHeader(HttpHeaders.ETAG, tag);
+        if (modified > 0) response.setDateHeader(HttpHeaders.LAST_MODIFIED, modified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.VARY, "Accept, Accept-Encoding");
+    }
+
+    /** If-None-Match takes precedence; both encodings of a body carry the same data, so either tag matches. */
+    private static boolean notModified(HttpServletRequest request, String tag, String gzipTag, long modified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String c = candidate.trim();
+                if (c.startsWith("W/")) c = c.substring(2);
+                if (c.equals("*") || c.equals(tag) || c.equals(gzipTag)) return true;
+            }
+            return false;
+        }
+        if (modified <= 0) return false;
+        try {
+            long since = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return since >= 0 && modified / 1000 <= since / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Path plus parameters sorted by name; comma-separated ticker, sector and subsector lists are
+     * sorted and de-duplicated because their order does not change the result.
+     */
+    private static String normalize(HttpServletRequest request) {
+        Map<String, String> params = new TreeMap<>();
+        request.getParameterMap().forEach((name, values) -> {
+            if (!LIST_PARAMS.contains(name)) {
+                params.put(name, String.join("\u0000", values));
+                return;
+            }
+            Set<String> items = new TreeSet<>();
+            for (String v : values) {
+                for (String item : v.split(",")) {
+                    String t = item.trim();
+                    if (t.isEmpty()) continue;
+                    items.add("tickers".equals(name) ? t : t.toUpperCase(Locale.ROOT));
+                }
+            }
+            params.put(name, String.join(",", items));
+        });
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        boolean binary = accept != null && accept.contains("application/octet-stream");
+        return request.getRequestURI() + "?" + params + (binary ? " binary" : "");
+    }
+
+    private static String etag(long version, long modified, String query) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update((version + ":" + modified + ":" + query).getBytes(StandardCharsets.UTF_8));
+            byte[] digest = Arrays.copyOf(md.digest(), 16);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isStreaming(HttpServletRequest request) {
+        String format = request.getParameter("format");
+        return "stream".equalsIgnoreCase(format) || "ndjson".equalsIgnoreCase(format);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return accept != null && accept.toLowerCase(Locale.ROOT).contains(GZIP);
+    }
+
+    // small bodies and ones gzip cannot shrink are kept as they are
+    private CachedBody compress(String contentType, byte[] raw) throws IOException {
+        if (raw.length < gzipMinBytes) return new CachedBody(contentType, raw, false);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(buf)) {
+            gz.write(raw);
+        }
+        byte[] compressed = buf.toByteArray();
+        return compressed.length < raw.length ? new CachedBody(contentType, compressed, true)
+                : new CachedBody(contentType, raw, false);
+    }
+
+    private static byte[] gunzip(byte[] gzip) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private void count(String outcome) {
+        meters.counter("stocks.http.cache", "outcome", outcome).increment();
+    }
+
+    private record CachedBody(String contentType, byte[] body, boolean gzip) {
+    }
+
+    /**
+     * Holds the body in memory until it would exceed {@code limit}; then runs
+     * {@code beforePassThrough}, writes out what it holds and forwards everything after it to the
+     * real response, so an uncacheable body is never buffered whole.
+     */
+    private static final class BoundedBodyWrapper extends HttpServletResponseWrapper {
+        private final int limit;
+        private final Runnable beforePassThrough;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        private ServletOutputStream out;
+        private PrintWriter writer;
+
+        BoundedBodyWrapper(HttpServletResponse response, int limit, Runnable beforePassThrough) {
+            super(response);
+            this.limit = limit;
+            this.beforePassThrough = beforePassThrough;
+        }
+
+        boolean isPassedThrough() {
+            return buffer == null;
+        }
+
+        byte[] body() {
+            return buffer.toByteArray();
+        }
+
+        void flushWriter() {
+            if (writer != null) writer.flush();
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            if (buffer != null && buffer.size() + len > limit) {
+                beforePassThrough.run();
+                buffer.writeTo(realOutputStream());
+                buffer = null;
+            }
+            if (buffer == null) realOutputStream().write(b, off, len);
+            else buffer.write(b, off, len);
+        }
+
+        private ServletOutputStream realOutputStream() throws IOException {
+            return getResponse().getOutputStream();
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (out == null) {
+                out = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        BoundedBodyWrapper.this.write(new byte[]{(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        BoundedBodyWrapper.this.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        if (isPassedThrough()) realOutputStream().flush();
+                    }
+
+                    // buffered writes never block; once passed through the real stream decides
+                    @Override
+                    public boolean isReady() {
+                        try {
+                            return !isPassedThrough() || realOutputStream().isReady();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        try {
+                            realOutputStream().setWriteListener(listener);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                };
+            }
+            return out;
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), Charset.forName(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        // the length is set from the buffer once the body is complete
+        @Override
+        public void setContentLength(int len) {
+            if (isPassedThrough()) super.setContentLength(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (isPassedThrough()) super.setContentLengthLong(len);
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (isPassedThrough()) super.flushBuffer();
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (isPassedThrough()) super.resetBuffer();
+            else buffer.reset();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (!isPassedThrough()) buffer.reset();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.stocks.web;
+
+import com.example.stocks.model.QueryResult;
+import com.example.stocks.model.TickerSeries;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+/**
+ * Writes query results straight from the columnar store to an output stream, row by row, without
+ * materializing {@code StockPrice} objects or a response buffer. Field names and value formats
+ * match the regular JSON response.
+ */
+@Component
+public class StockRowWriter {
+
+    private final ObjectMapper objectMapper;
+
+    public StockRowWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /** Writes a JSON array of rows. */
+    public void writeJson(QueryResult result, OutputStream out) throws IOException {
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.writeStartArray();
+            for (int i = 0; i < result.size(); i++) writeRow(gen, result.series(i), result.row(i));
+            gen.writeEndArray();
+        }
+    }
+
+    /** Writes one JSON object per line (NDJSON). */
+    public void writeNdjson(QueryResult result, OutputStream out) throws IOException {
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.setRootValueSeparator(null);
+            for (int i = 0; i < result.size(); i++) {
+                writeRow(gen, result.series(i), result.row(i));
+                gen.writeRaw('\n');
+            }
+        }
+    }
+
+    private void writeRow(JsonGenerator gen, TickerSeries s, int row) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("date", LocalDate.ofEpochDay(s.day(row)).toString());
+        gen.writeStringField("ticker", s.getTicker());
+        writePrice(gen, "open", s.open(row));
+        writePrice(gen, "high", s.high(row));
+        writePrice(gen, "low", s.low(row));
+        writePrice(gen, "close", s.close(row));
+        gen.writeNumberField("volume", s.volume(row));
+        gen.writeEndObject();
+    }
+
+    private void writePrice(JsonGenerator gen, String name, double v) throws IOException {
+        if (Double.isNaN(v)) gen.writeNullField(name);
+        else gen.writeNumberField(name, v);
+    }
+}
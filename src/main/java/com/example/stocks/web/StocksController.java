@@ -1,99 +1,329 @@
 package com.example.stocks.web;
 
+import com.example.stocks.model.ChartData;
+import com.example.stocks.model.ExportJob;
+import com.example.stocks.model.Interval;
+import com.example.stocks.model.PageCursor;
+import com.example.stocks.model.QueryResult;
 import com.example.stocks.model.StockPrice;
+import com.example.stocks.model.TickerFilter;
 import com.example.stocks.service.ChartService;
-import com.example.stocks.service.PdfService;
+import com.example.stocks.service.ExportJobService;
+import com.example.stocks.service.Indicators;
+import com.example.stocks.service.ScreenerService;
 import com.example.stocks.service.StockQueryService;
-import com.lowagie.text.DocumentException;
+import com.example.stocks.web.dto.ExportJobResponse;
+import com.example.stocks.web.dto.ScreenResponse;
+import com.example.stocks.web.dto.StockPage;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.net.URI;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/stocks")
 public class StocksController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_SCREEN_LIMIT = 1000;
+
     private final StockQueryService queryService;
     private final ChartService chartService;
-    private final PdfService pdfService;
+    private final ExportJobService exportJobService;
+    private final ScreenerService screenerService;
+    private final LiveFeedBroadcaster liveFeed;
+    private final StockRowWriter rowWriter;
 
-    public StocksController(StockQueryService queryService, ChartService chartService, PdfService pdfService) {
+    public StocksController(StockQueryService queryService, ChartService chartService,
+                            ExportJobService exportJobService, ScreenerService screenerService,
+                            LiveFeedBroadcaster liveFeed, StockRowWriter rowWriter) {
         this.queryService = queryService;
         this.chartService = chartService;
-        this.pdfService = pdfService;
+        this.exportJobService = exportJobService;
+        this.screenerService = screenerService;
+        this.liveFeed = liveFeed;
+        this.rowWriter = rowWriter;
     }
 
     @GetMapping("/list")
     public ResponseEntity<?> list(
             @RequestParam(name = "tickers", required = false) String tickers,
+            @RequestParam(name = "sector", required = false) String sector,
+            @RequestParam(name = "subsector", required = false) String subsector,
             @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(name = "sortBy", defaultValue = "date") String sortBy,
-            @RequestParam(name = "sortDir", defaultValue = "asc") String sortDir
+            @RequestParam(name = "sortDir", defaultValue = "asc") String sortDir,
+            @RequestParam(name = "interval", required = false) String interval,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor
     ) {
-        Set<String> tset = parseTickers(tickers);
-        List<StockPrice> data = queryService.query(tset, startDate, endDate, sortBy, sortDir);
+        TickerFilter filter = parseFilter(tickers, sector, subsector);
+        Interval bars = parseInterval(interval);
+        if (limit != null || cursor != null) {
+            QueryResult page = selectPage(filter, startDate, endDate, sortBy, sortDir, bars, limit, cursor);
+            if (page.isEmpty() && cursor == null) return ResponseEntity.ok(emptyList());
+            String next = page.getNext() == null ? null : page.getNext().encode();
+            return ResponseEntity.ok(new StockPage(page.toList(), limit == null ? 0 : limit, next));
+        }
+        List<StockPrice> data = queryService.select(filter, startDate, endDate, sortBy, sortDir, bars).toList();
         if (data.isEmpty()) {
-            Map<String, Object> empty = new HashMap<>();
-            empty.put("message", "Tidak ada data untuk filter yang dipilih");
-            empty.put("rows", 0);
-            return ResponseEntity.ok(empty);
+            return ResponseEntity.ok(emptyList());
         }
         return ResponseEntity.ok(data);
     }
 
+    /**
+     * Streaming variant of {@link #list}: {@code format=stream} writes a JSON array and
+     * {@code format=ndjson} one object per line, both straight from the store to the socket.
+     */
+    @GetMapping(value = "/list", params = {"format", "format!=json"})
+    public ResponseEntity<StreamingResponseBody> listStream(
+            @RequestParam(name = "tickers", required = false) String tickers,
+            @RequestParam(name = "sector", required = false) String sector,
+            @RequestParam(name = "subsector", required = false) String subsector,
+            @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(name = "sortBy", defaultValue = "date") String sortBy,
+            @RequestParam(name = "sortDir", defaultValue = "asc") String sortDir,
+            @RequestParam(name = "interval", required = false) String interval,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "format") String format
+    ) {
+        QueryResult result = selectPage(parseFilter(tickers, sector, subsector), startDate, endDate, sortBy, sortDir,
+                parseInterval(interval), limit, cursor);
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        StreamingResponseBody body = out -> {
+            if (ndjson) rowWriter.writeNdjson(result, out);
+            else rowWriter.writeJson(result, out);
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.getNext() != null) response.header(NEXT_CURSOR_HEADER, result.getNext().encode());
+        return response.contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON).body(body);
+    }
+
     @GetMapping("/chart")
     public ResponseEntity<?> chart(
             @RequestParam(name = "tickers", required = false) String tickers,
+            @RequestParam(name = "sector", required = false) String sector,
+            @RequestParam(name = "subsector", required = false) String subsector,
             @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
-    ) {
-        Set<String> tset = parseTickers(tickers);
-        Map<String, Object> chartData = chartService.buildChartData(tset, startDate, endDate);
-        if (((List<?>) chartData.getOrDefault("categories", List.of())).isEmpty()) {
+            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(name = "interval", required = false) String interval,
+            @RequestParam(name = "maxPoints", defaultValue = "0") int maxPoints,
+            @RequestParam(name = "downsample", defaultValue = "lttb") String downsample,
+            @RequestParam(name = "indicators", required = false) String indicators,
+            @RequestParam(name = "format", defaultValue = "json") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept
+    ) throws IOException {
+        ChartData chartData = chartService.buildSeries(parseFilter(tickers, sector, subsector), startDate, endDate,
+                parseInterval(interval), maxPoints, downsample, parseIndicators(indicators));
+        if ("binary".equalsIgnoreCase(format)
+                || (accept != null && accept.contains(MediaType.APPLICATION_OCTET_STREAM_VALUE))) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(CompactChartEncoder.toBinary(chartData));
+        }
+        if (chartData.isEmpty()) {
             Map<String, Object> empty = new HashMap<>();
             empty.put("message", "Tidak ada data untuk ditampilkan pada grafik");
             return ResponseEntity.ok(empty);
         }
-        return ResponseEntity.ok(chartData);
+        if ("compact".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok(CompactChartEncoder.toJson(chartData));
+        }
+        return ResponseEntity.ok(chartService.toResponse(chartData));
+    }
+
+    /**
+     * Ranks tickers by a metric over the {@code days} calendar days ending on {@code endDate}
+     * (default: the latest loaded day), e.g. the top 20 by 30-day return with an average volume above a bound.
+     */
+    @GetMapping("/screen")
+    public ScreenResponse screen(
+            @RequestParam(name = "tickers", required = false) String tickers,
+            @RequestParam(name = "sector", required = false) String sector,
+            @RequestParam(name = "subsector", required = false) String subsector,
+            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(name = "days", defaultValue = "30") int days,
+            @RequestParam(name = "rankBy", defaultValue = "return") String rankBy,
+            @RequestParam(name = "sortDir", defaultValue = "desc") String sortDir,
+            @RequestParam(name = "limit", defaultValue = "20") int limit,
+            @RequestParam(name = "minAvgVolume", required = false) Double minAvgVolume,
+            @RequestParam(name = "minReturn", required = false) Double minReturn,
+            @RequestParam(name = "maxReturn", required = false) Double maxReturn
+    ) {
+        if (days < 1) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "days harus >= 1");
+        if (limit < 1 || limit > MAX_SCREEN_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit harus antara 1 dan " + MAX_SCREEN_LIMIT);
+        }
+        ScreenerService.Metric metric;
+        try {
+            metric = ScreenerService.Metric.parse(rankBy);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "rankBy harus salah satu dari return, avgVolume, close");
+        }
+        ScreenerService.Criteria criteria = new ScreenerService.Criteria(parseFilter(tickers, sector, subsector),
+                endDate, days, metric, !"asc".equalsIgnoreCase(sortDir), limit, minAvgVolume, minReturn, maxReturn);
+        return ScreenResponse.of(criteria, screenerService.screen(criteria));
+    }
+
+    /**
+     * Server-Sent Events feed of bars changed by CSV updates for the filtered tickers: a
+     * {@code hello} event with the current snapshot version, then {@code bars} events carrying only
+     * the changed bars, or {@code resync} when the client fell too far behind and should reload.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @RequestParam(name = "tickers", required = false) String tickers,
+            @RequestParam(name = "sector", required = false) String sector,
+            @RequestParam(name = "subsector", required = false) String subsector,
+            @RequestParam(name = "interval", required = false) String interval
+    ) {
+        try {
+            return liveFeed.subscribe(parseFilter(tickers, sector, subsector), parseInterval(interval));
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Terlalu banyak koneksi stream");
+        }
     }
 
     @GetMapping("/export/pdf")
-    public ResponseEntity<byte[]> exportPdf(
+    public ResponseEntity<StreamingResponseBody> exportPdf(
             @RequestParam(name = "tickers", required = false) String tickers,
             @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(name = "sortBy", defaultValue = "date") String sortBy,
             @RequestParam(name = "sortDir", defaultValue = "asc") String sortDir
-    ) throws IOException, DocumentException {
+    ) {
         Set<String> tset = parseTickers(tickers);
-        List<StockPrice> data = queryService.query(tset, startDate, endDate, sortBy, sortDir);
-        Map<String, Object> chartData = chartService.buildChartData(tset, startDate, endDate);
-        Map<String, String> filters = new HashMap<>();
-        filters.put("tickers", tset == null || tset.isEmpty() ? "(all)" : String.join(",", tset));
-        filters.put("startDate", startDate == null ? "" : startDate.toString());
-        filters.put("endDate", endDate == null ? "" : endDate.toString());
-        byte[] pdf = pdfService.generatePdf("Stocks Dashboard", chartData, data, filters);
+        StreamingResponseBody body = out -> exportJobService.stream(tset, startDate, endDate, sortBy, sortDir, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=dashboard.pdf")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(body);
+    }
+
+    /** Queues the same export as {@link #exportPdf}; poll the returned job and download when DONE. */
+    @PostMapping("/export/jobs")
+    public ResponseEntity<ExportJobResponse> submitExport(
+            @RequestParam(name = "tickers", required = false) String tickers,
+            @RequestParam(name = "startDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(name = "endDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(name = "sortBy", defaultValue = "date") String sortBy,
+            @RequestParam(name = "sortDir", defaultValue = "asc") String sortDir
+    ) {
+        ExportJob job;
+        try {
+            job = exportJobService.submit(parseTickers(tickers), startDate, endDate, sortBy, sortDir);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Antrian ekspor penuh, coba lagi nanti");
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/stocks/export/jobs/" + job.getId()))
+                .body(ExportJobResponse.of(job));
+    }
+
+    @GetMapping("/export/jobs/{id}")
+    public ExportJobResponse exportJob(@PathVariable("id") String id) {
+        return ExportJobResponse.of(findJob(id));
+    }
+
+    @GetMapping("/export/jobs/{id}/download")
+    public ResponseEntity<Resource> downloadExport(@PathVariable("id") String id) {
+        ExportJob job = findJob(id);
+        if (job.getStatus() != ExportJob.Status.DONE) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Ekspor belum selesai (status " + job.getStatus() + ")");
+        }
+        Resource file = new FileSystemResource(job.getFile());
+        if (!file.exists()) throw new ResponseStatusException(HttpStatus.GONE, "File ekspor sudah dihapus");
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=dashboard.pdf")
                 .contentType(MediaType.APPLICATION_PDF)
-                .body(pdf);
+                .body(file);
+    }
+
+    private ExportJob findJob(String id) {
+        return exportJobService.find(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Job ekspor tidak ditemukan"));
+    }
+
+    @GetMapping("/cache/stats")
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("query", queryService.getCache().stats());
+        stats.put("chart", chartService.getCache().stats());
+        return stats;
+    }
+
+    private QueryResult selectPage(TickerFilter filter, LocalDate startDate, LocalDate endDate,
+                                   String sortBy, String sortDir, Interval interval, Integer limit, String cursor) {
+        if (limit != null && limit < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit harus >= 1");
+        }
+        try {
+            PageCursor after = cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+            return queryService.page(filter, startDate, endDate, sortBy, sortDir, interval, limit == null ? 0 : limit, after);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor tidak valid", e);
+        }
+    }
+
+    private Interval parseInterval(String interval) {
+        try {
+            return Interval.parse(interval);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "interval harus salah satu dari 1d, 1w, 1M, 1Y");
+        }
+    }
+
+    private List<Indicators.Spec> parseIndicators(String indicators) {
+        try {
+            return Indicators.parse(indicators);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "indicators tidak valid (contoh: sma20,ema50,vwap20,bb20,rsi14): " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> emptyList() {
+        Map<String, Object> empty = new HashMap<>();
+        empty.put("message", "Tidak ada data untuk filter yang dipilih");
+        empty.put("rows", 0);
+        return empty;
+    }
+
+    private TickerFilter parseFilter(String tickers, String sector, String subsector) {
+        return TickerFilter.of(parseTickers(tickers), parseTickers(sector), parseTickers(subsector));
     }
 
+    /** Splits a comma-separated parameter; also used for sector and subsector lists. */
     private Set<String> parseTickers(String tickers) {
         if (tickers == null || tickers.isBlank()) return new HashSet<>();
         return java.util.Arrays.stream(tickers.split(","))
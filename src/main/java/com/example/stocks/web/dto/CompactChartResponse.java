@@ -0,0 +1,34 @@
+package com.example.stocks.web.dto;
+
+import java.util.List;
+import java.util.Map;
+
+public class CompactChartResponse {
+    private String baseDate; // ISO date of the first point
+    private int[] dayDeltas; // days since the previous point; the first entry is 0
+    private List<String> tickers;
+    private Map<String, double[]> values; // ticker -> closes of the valid points only, in order
+    private Map<String, String> validity; // ticker -> base64 bitmap, bit i set when point i has a value
+
+    public CompactChartResponse() {}
+
+    public CompactChartResponse(String baseDate, int[] dayDeltas, List<String> tickers,
+                                Map<String, double[]> values, Map<String, String> validity) {
+        this.baseDate = baseDate;
+        this.dayDeltas = dayDeltas;
+        this.tickers = tickers;
+        this.values = values;
+        this.validity = validity;
+    }
+
+    public String getBaseDate() { return baseDate; }
+    public void setBaseDate(String baseDate) { this.baseDate = baseDate; }
+    public int[] getDayDeltas() { return dayDeltas; }
+    public void setDayDeltas(int[] dayDeltas) { this.dayDeltas = dayDeltas; }
+    public List<String> getTickers() { return tickers; }
+    public void setTickers(List<String> tickers) { this.tickers = tickers; }
+    public Map<String, double[]> getValues() { return values; }
+    public void setValues(Map<String, double[]> values) { this.values = values; }
+    public Map<String, String> getValidity() { return validity; }
+    public void setValidity(Map<String, String> validity) { this.validity = validity; }
+}
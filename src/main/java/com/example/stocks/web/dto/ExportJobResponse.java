@@ -0,0 +1,40 @@
+package com.example.stocks.web.dto;
+
+import com.example.stocks.model.ExportJob;
+
+public class ExportJobResponse {
+    private String jobId;
+    private String status;
+    private String createdAt;
+    private String finishedAt;
+    private String error;
+    private String downloadUrl; // set once the job is DONE
+
+    public ExportJobResponse() {}
+
+    public static ExportJobResponse of(ExportJob job) {
+        ExportJobResponse r = new ExportJobResponse();
+        r.jobId = job.getId();
+        r.status = job.getStatus().name();
+        r.createdAt = job.getCreatedAt().toString();
+        r.finishedAt = job.getFinishedAt() == null ? null : job.getFinishedAt().toString();
+        r.error = job.getError();
+        if (job.getStatus() == ExportJob.Status.DONE) {
+            r.downloadUrl = "/api/stocks/export/jobs/" + job.getId() + "/download";
+        }
+        return r;
+    }
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public String getCreatedAt() { return createdAt; }
+    public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
+    public String getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(String finishedAt) { this.finishedAt = finishedAt; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public String getDownloadUrl() { return downloadUrl; }
+    public void setDownloadUrl(String downloadUrl) { this.downloadUrl = downloadUrl; }
+}
@@ -0,0 +1,46 @@
+package com.example.stocks.web.dto;
+
+import com.example.stocks.model.ScreenRow;
+import com.example.stocks.service.ScreenerService;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class ScreenResponse {
+    private LocalDate from;
+    private LocalDate asOf;
+    private String rankBy;
+    private String sortDir;
+    private int screened;
+    private int matched;
+    private List<ScreenRow> rows;
+
+    public ScreenResponse() {}
+
+    public static ScreenResponse of(ScreenerService.Criteria criteria, ScreenerService.Screen screen) {
+        ScreenResponse r = new ScreenResponse();
+        r.from = screen.from();
+        r.asOf = screen.asOf();
+        r.rankBy = criteria.rankBy().code();
+        r.sortDir = criteria.desc() ? "desc" : "asc";
+        r.screened = screen.screened();
+        r.matched = screen.matched();
+        r.rows = screen.rows();
+        return r;
+    }
+
+    public LocalDate getFrom() { return from; }
+    public void setFrom(LocalDate from) { this.from = from; }
+    public LocalDate getAsOf() { return asOf; }
+    public void setAsOf(LocalDate asOf) { this.asOf = asOf; }
+    public String getRankBy() { return rankBy; }
+    public void setRankBy(String rankBy) { this.rankBy = rankBy; }
+    public String getSortDir() { return sortDir; }
+    public void setSortDir(String sortDir) { this.sortDir = sortDir; }
+    public int getScreened() { return screened; }
+    public void setScreened(int screened) { this.screened = screened; }
+    public int getMatched() { return matched; }
+    public void setMatched(int matched) { this.matched = matched; }
+    public List<ScreenRow> getRows() { return rows; }
+    public void setRows(List<ScreenRow> rows) { this.rows = rows; }
+}
@@ -0,0 +1,26 @@
+package com.example.stocks.web.dto;
+
+import com.example.stocks.model.StockPrice;
+
+import java.util.List;
+
+public class StockPage {
+    private List<StockPrice> rows;
+    private int limit;
+    private String nextCursor; // null on the last page
+
+    public StockPage() {}
+
+    public StockPage(List<StockPrice> rows, int limit, String nextCursor) {
+        this.rows = rows;
+        this.limit = limit;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<StockPrice> getRows() { return rows; }
+    public void setRows(List<StockPrice> rows) { this.rows = rows; }
+    public int getLimit() { return limit; }
+    public void setLimit(int limit) { this.limit = limit; }
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
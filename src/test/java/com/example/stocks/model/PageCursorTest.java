@@ -0,0 +1,51 @@
+package com.example.stocks.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PageCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        PageCursor cursor = new PageCursor("close", true, Double.doubleToLongBits(-12.5), "BBCA", 19_999);
+        PageCursor decoded = PageCursor.decode(cursor.encode());
+        assertEquals("close", decoded.getSortKey());
+        assertTrue(decoded.isDesc());
+        assertEquals(-12.5, decoded.getDoubleValue());
+        assertEquals("BBCA", decoded.getTicker());
+        assertEquals(19_999, decoded.getDay());
+
+        PageCursor unicode = PageCursor.decode(new PageCursor("ticker", false, 0, "A\u00C9,\"", -5).encode());
+        assertEquals("A\u00C9,\"", unicode.getTicker());
+        assertEquals(-5, unicode.getDay());
+    }
+
+    @Test
+    void garbageIsRejected() {
+        for (String token : new String[]{"", "x", "not a cursor", "!!!!", "AAAA", "YWJj"}) {
+            assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token), token);
+        }
+    }
+
+    @Test
+    void editedOrTruncatedCursorIsRejected() {
+        byte[] bytes = Base64.getUrlDecoder().decode(new PageCursor("volume", false, 1234, "TLKM", 20_000).encode());
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] edited = bytes.clone();
+            edited[i] ^= 0x01;
+            String token = Base64.getUrlEncoder().withoutPadding().encodeToString(edited);
+            assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token), "byte " + i);
+        }
+        for (int n = 0; n < bytes.length; n++) {
+            byte[] truncated = Arrays.copyOf(bytes, n);
+            String token = Base64.getUrlEncoder().withoutPadding().encodeToString(truncated);
+            assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(token), "length " + n);
+        }
+    }
+}
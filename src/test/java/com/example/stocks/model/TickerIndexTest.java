@@ -0,0 +1,99 @@
+package com.example.stocks.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TickerIndexTest {
+
+    // EEE has prices but no reference row, ZZZ a reference row but no prices
+    private final TickerIndex index = new TickerIndex(List.of("AAA", "BBB", "CCC", "DDD", "EEE"), Map.of(
+            "AAA", listing("AAA", "S1", "Finance", "SS1", "Banks"),
+            "BBB", listing("BBB", "S1", "Finance", "SS2", "Insurance"),
+            "CCC", listing("CCC", "S2", "Energy", "SS3", "Oil & Gas"),
+            "DDD", listing("DDD", "S2", " ", "SS3", null),
+            "ZZZ", listing("ZZZ", "S1", "Finance", "SS1", "Banks")));
+
+    @Test
+    void emptyFilterCoversEverything() {
+        assertSame(TickerFilter.all(), TickerFilter.of(Set.of(), Set.of(), null));
+        assertNull(index.resolve(TickerFilter.all()));
+    }
+
+    @Test
+    void groupsMatchByIdOrName() {
+        assertEquals(List.of("AAA", "BBB"), tickers(filter(null, Set.of("s1"), null)));
+        assertEquals(List.of("AAA", "BBB"), tickers(filter(null, Set.of("FINANCE"), null)));
+        // DDD has no sector name, but its id still places it in Energy
+        assertEquals(List.of("CCC", "DDD"), tickers(filter(null, Set.of("energy"), null)));
+        assertEquals(List.of("CCC", "DDD"), tickers(filter(null, null, Set.of("Oil & Gas"))));
+        assertEquals(List.of("AAA"), tickers(filter(null, null, Set.of("ss1"))));
+    }
+
+    @Test
+    void valuesWithinOneDimensionAreUnited() {
+        assertEquals(List.of("AAA", "CCC"), tickers(TickerFilter.of(Set.of("CCC", "AAA"))));
+        assertEquals(List.of("AAA", "BBB", "CCC", "DDD"), tickers(filter(null, Set.of("S1", "Energy"), null)));
+        assertEquals(List.of("AAA", "BBB"), tickers(filter(null, null, Set.of("Banks", "SS2"))));
+    }
+
+    @Test
+    void dimensionsAreIntersected() {
+        assertEquals(List.of("BBB"), tickers(filter(Set.of("BBB", "CCC"), Set.of("S1"), null)));
+        assertEquals(List.of("AAA"), tickers(filter(null, Set.of("Finance"), Set.of("Banks", "Oil & Gas"))));
+        assertEquals(List.of(), tickers(filter(Set.of("AAA"), Set.of("S1"), Set.of("SS2"))));
+    }
+
+    @Test
+    void unknownValuesMatchNothing() {
+        assertEquals(List.of(), tickers(TickerFilter.of(Set.of("XXX"))));
+        assertEquals(List.of(), tickers(filter(null, Set.of("Mining"), null)));
+        assertEquals(List.of(), tickers(filter(null, null, Set.of("SS9"))));
+        assertEquals(List.of("AAA"), tickers(TickerFilter.of(Set.of("AAA", "XXX"))));
+        // ticker names are case-sensitive, unlike groups
+        assertEquals(List.of(), tickers(TickerFilter.of(Set.of("aaa"))));
+    }
+
+    @Test
+    void tickersOutsideTheReferenceTable() {
+        // EEE is only reachable by name; ZZZ has no id and joins no group
+        assertEquals(List.of("EEE"), tickers(TickerFilter.of(Set.of("EEE"))));
+        assertEquals(List.of(), tickers(filter(Set.of("EEE"), Set.of("S1"), null)));
+        assertEquals(-1, index.id("ZZZ"));
+        assertEquals(List.of(), tickers(TickerFilter.of(Set.of("ZZZ"))));
+        assertEquals(List.of("AAA"), tickers(filter(null, null, Set.of("Banks"))));
+    }
+
+    @Test
+    void filtersAreNormalized() {
+        TickerFilter a = filter(Set.of("BBB", "AAA"), Set.of("finance"), null);
+        TickerFilter b = filter(Set.of("AAA", "BBB"), Set.of("FINANCE"), Set.of());
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(Set.of("FINANCE"), a.getSectors());
+    }
+
+    private List<String> tickers(TickerFilter filter) {
+        BitSet ids = index.resolve(filter);
+        List<String> out = new ArrayList<>();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) out.add(index.ticker(id));
+        return out;
+    }
+
+    private static TickerFilter filter(Set<String> tickers, Set<String> sectors, Set<String> subsectors) {
+        return TickerFilter.of(tickers, sectors, subsectors);
+    }
+
+    private static Listing listing(String ticker, String sectorId, String sector, String subsectorId,
+                                   String subsector) {
+        return new Listing(ticker, ticker + " Tbk", sectorId, sector, subsectorId, subsector, null);
+    }
+}
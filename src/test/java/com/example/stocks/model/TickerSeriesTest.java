@@ -0,0 +1,121 @@
+package com.example.stocks.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TickerSeriesTest {
+
+    private static final Interval[] ROLLUPS = {Interval.WEEK, Interval.MONTH, Interval.YEAR};
+    private static final int START = (int) LocalDate.of(2023, 11, 1).toEpochDay();
+    // Sunday: the next day opens a new week, month and year
+    private static final int YEAR_END = (int) LocalDate.of(2023, 12, 31).toEpochDay();
+
+    @Test
+    void appendInsideTheOpenBucket() {
+        // ends on Wednesday 2024-01-10, Thursday stays in the same week, month and year
+        TickerSeries previous = daily(START, (int) LocalDate.of(2024, 1, 10).toEpochDay());
+        assertIncrementalMatchesFull(previous, s -> append(s, (int) LocalDate.of(2024, 1, 11).toEpochDay()));
+    }
+
+    @Test
+    void appendOpeningANewBucket() {
+        TickerSeries previous = daily(START, YEAR_END);
+        assertIncrementalMatchesFull(previous, s -> append(s, YEAR_END + 1));
+    }
+
+    @Test
+    void rewriteInTheMiddle() {
+        TickerSeries previous = daily(START, YEAR_END + 40);
+        assertIncrementalMatchesFull(previous, s -> {
+            TickerSeries.Builder b = TickerSeries.builder("AAA").addAll(s);
+            int mid = s.day(s.size() / 2);
+            b.add(mid, 1, 500, 0.5, 2, 7);
+            return b.build();
+        });
+        // a rewrite that blanks prices is skipped by the aggregation just the same
+        assertIncrementalMatchesFull(previous, s -> TickerSeries.builder("AAA").addAll(s)
+                .add(s.day(3), Double.NaN, Double.NaN, Double.NaN, Double.NaN, 0).build());
+    }
+
+    @Test
+    void deleteRows() {
+        TickerSeries previous = daily(START, YEAR_END + 40);
+        assertIncrementalMatchesFull(previous, s -> slice(s, 0, s.size() - 3));
+        assertIncrementalMatchesFull(previous, s -> slice(s, 0, s.lowerBound(YEAR_END + 1)));
+        // a whole week removed from the middle of the history
+        assertIncrementalMatchesFull(previous, s -> {
+            int from = s.lowerBound(YEAR_END - 13);
+            TickerSeries.Builder b = TickerSeries.builder("AAA");
+            for (int i = 0; i < s.size(); i++) {
+                if (i < from || i >= from + 7) b.add(s.day(i), s.open(i), s.high(i), s.low(i), s.close(i), s.volume(i));
+            }
+            return b.build();
+        });
+    }
+
+    @Test
+    void unchangedSeriesKeepsItsRollup() {
+        TickerSeries previous = daily(START, YEAR_END);
+        TickerSeries previousRollup = previous.rollup(Interval.WEEK);
+        TickerSeries copy = TickerSeries.builder("AAA").addAll(previous).build();
+        assertSame(previousRollup, copy.rollup(Interval.WEEK, previous, previousRollup));
+        assertSame(previousRollup, copy.derivedFrom(previous).rollup(Interval.WEEK, previous, previousRollup));
+    }
+
+    @Test
+    void appendReusesEveryClosedBucket() {
+        TickerSeries previous = daily(START, YEAR_END);
+        TickerSeries previousRollup = previous.rollup(Interval.WEEK);
+        TickerSeries next = append(previous, YEAR_END + 1).derivedFrom(previous);
+        TickerSeries rollup = next.rollup(Interval.WEEK, previous, previousRollup);
+        assertEquals(previousRollup.size(), rollup.rowsSharedWith(previousRollup));
+    }
+
+    /** Both with and without recorded lineage, so the shared-prefix shortcut and the full compare are covered. */
+    private static void assertIncrementalMatchesFull(TickerSeries previous, UnaryOperator<TickerSeries> change) {
+        TickerSeries next = change.apply(previous);
+        for (Interval interval : ROLLUPS) {
+            TickerSeries previousRollup = previous.rollup(interval);
+            TickerSeries full = next.rollup(interval);
+            assertSameBars(full, next.rollup(interval, previous, previousRollup));
+            assertSameBars(full, next.derivedFrom(previous).rollup(interval, previous, previousRollup));
+        }
+    }
+
+    private static void assertSameBars(TickerSeries expected, TickerSeries actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.day(i), actual.day(i), "day " + i);
+            assertEquals(expected.open(i), actual.open(i), "open " + i);
+            assertEquals(expected.high(i), actual.high(i), "high " + i);
+            assertEquals(expected.low(i), actual.low(i), "low " + i);
+            assertEquals(expected.close(i), actual.close(i), "close " + i);
+            assertEquals(expected.volume(i), actual.volume(i), "volume " + i);
+        }
+    }
+
+    private static TickerSeries daily(int from, int to) {
+        TickerSeries.Builder b = TickerSeries.builder("AAA");
+        for (int d = from; d <= to; d++) {
+            int i = d - from;
+            double close = 100 + 10 * Math.sin(i / 5.0) + i % 7;
+            b.add(d, close - 1, close + 2, close - 2, close, 1000 + i);
+        }
+        return b.build();
+    }
+
+    private static TickerSeries append(TickerSeries s, int day) {
+        return TickerSeries.builder("AAA").addAll(s).add(day, 50, 300, 10, 60, 99).build();
+    }
+
+    private static TickerSeries slice(TickerSeries s, int from, int to) {
+        TickerSeries.Builder b = TickerSeries.builder("AAA");
+        for (int i = from; i < to; i++) b.add(s.day(i), s.open(i), s.high(i), s.low(i), s.close(i), s.volume(i));
+        return b.build();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.ChartData;
+import com.example.stocks.model.Interval;
+import com.example.stocks.model.TickerFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChartServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private ChartService chartService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        StringBuilder csv = new StringBuilder(TestStores.HEADER);
+        // AAA trades on even days, BBB on odd days: the union of their dates has no common day
+        TestStores.appendDaily(csv, "AAA", LocalDate.of(2024, 1, 2), 200, 2);
+        TestStores.appendDaily(csv, "BBB", LocalDate.of(2024, 1, 3), 200, 2);
+        TestStores.write(dir.resolve("stocks.csv"), csv);
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        StockStore store = TestStores.load(dir);
+        StockQueryService queryService = new StockQueryService(store, 0, meters);
+        chartService = new ChartService(queryService, store, new IndicatorService(0, meters), 0, 0, 1, meters);
+    }
+
+    @AfterEach
+    void tearDown() {
+        chartService.shutdown();
+    }
+
+    @Test
+    void lttbKeepsSharedAxisWithinMaxPoints() {
+        ChartData data = chartService.buildSeries(Set.of("AAA", "BBB"), null, null, 10, "lttb");
+        assertTrue(data.size() <= 10, "categories: " + data.size());
+        assertEquals(List.of("AAA", "BBB"), data.getTickers());
+        assertNoHoles(data);
+    }
+
+    @Test
+    void minMaxKeepsSharedAxisWithinMaxPoints() {
+        ChartData data = chartService.buildSeries(Set.of("AAA", "BBB"), null, null, 10, "minmax");
+        assertTrue(data.size() <= 10, "categories: " + data.size());
+        assertNoHoles(data);
+    }
+
+    @Test
+    void overlaysFollowTheSharedAxis() {
+        ChartData data = chartService.buildSeries(TickerFilter.of(Set.of("AAA", "BBB")), null, null, Interval.DAY,
+                12, "lttb", Indicators.parse("sma5"));
+        assertTrue(data.size() <= 12);
+        assertEquals(4, data.getTickers().size());
+        assertNoHoles(data);
+    }
+
+    @Test
+    void singleTickerKeepsItsOwnDates() {
+        ChartData full = chartService.buildSeries(Set.of("AAA"), null, null, 0, null);
+        ChartData data = chartService.buildSeries(Set.of("AAA"), null, null, 10, "lttb");
+        assertEquals(10, data.size());
+        assertEquals(full.getDays()[0], data.getDays()[0]);
+        assertEquals(full.getDays()[full.size() - 1], data.getDays()[data.size() - 1]);
+        assertNoHoles(data);
+    }
+
+    @Test
+    void tinyMaxPointsStillCapTheAxis() {
+        ChartData full = chartService.buildSeries(Set.of("AAA"), null, null, 0, null);
+        int last = full.getDays()[full.size() - 1];
+        for (String method : List.of("lttb", "minmax")) {
+            for (int maxPoints = 1; maxPoints <= 3; maxPoints++) {
+                String what = method + " " + maxPoints;
+                ChartData one = chartService.buildSeries(Set.of("AAA"), null, null, maxPoints, method);
+                assertTrue(one.size() <= maxPoints, what + ": " + one.size());
+                assertEquals(last, one.getDays()[one.size() - 1], what);
+                assertNoHoles(one);
+
+                ChartData two = chartService.buildSeries(Set.of("AAA", "BBB"), null, null, maxPoints, method);
+                assertTrue(two.size() >= 1 && two.size() <= maxPoints, what + ": " + two.size());
+                assertNoHoles(two);
+            }
+        }
+    }
+
+    @Test
+    void withoutDownsamplingEveryDayIsKept() {
+        ChartData data = chartService.buildSeries(Set.of("AAA", "BBB"), null, null, 0, null);
+        assertEquals(400, data.size());
+        ChartData small = chartService.buildSeries(Set.of("AAA", "BBB"), null, null, 400, "lttb");
+        assertArrayEquals(data.getDays(), small.getDays());
+    }
+
+    @Test
+    void fingerprintCollisionIsNotServedFromTheImageCache() throws Exception {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        StockStore store = TestStores.load(dir);
+        ChartService rendering = new ChartService(new StockQueryService(store, 0, meters), store,
+                new IndicatorService(0, meters), 0, 1 << 24, 1, meters);
+        try {
+            // "Aa" and "BB" share String.hashCode, so the charts differ only in what the fingerprint cannot see
+            int[] days = {19_700, 19_701, 19_702};
+            double[][] values = {{1, 3, 2}};
+            ChartData aa = new ChartData(days, List.of("Aa"), values);
+            ChartData bb = new ChartData(days, List.of("BB"), values);
+            assertEquals(aa.fingerprint(), bb.fingerprint());
+            assertFalse(aa.contentEquals(bb));
+
+            byte[] first = rendering.renderLineChartPng("t", aa, 300, 200);
+            assertSame(first, rendering.renderLineChartPng("t", new ChartData(days, List.of("Aa"), values), 300, 200));
+            byte[] other = rendering.renderLineChartPng("t", bb, 300, 200);
+            assertFalse(Arrays.equals(first, other));
+            assertEquals(1, meters.counter("stocks.chart.render.collisions").count());
+        } finally {
+            rendering.shutdown();
+        }
+    }
+
+    private static void assertNoHoles(ChartData data) {
+        for (int t = 0; t < data.getTickers().size(); t++) {
+            double[] v = data.getValues()[t];
+            // overlays may still be warming up at the very start; after the first value, no gaps
+            int k = 0;
+            while (k < v.length && Double.isNaN(v[k])) k++;
+            assertTrue(k < v.length, data.getTickers().get(t) + " is empty");
+            for (; k < v.length; k++) {
+                assertFalse(Double.isNaN(v[k]), data.getTickers().get(t) + " has a hole at " + k);
+            }
+        }
+    }
+}
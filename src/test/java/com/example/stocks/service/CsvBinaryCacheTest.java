@@ -0,0 +1,185 @@
+package com.example.stocks.service;
+
+import com.example.stocks.config.ExecutionMode;
+import com.example.stocks.model.TickerSeries;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvBinaryCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private Path csv;
+    private Path cacheDir;
+    private CsvBinaryCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        StringBuilder content = new StringBuilder(TestStores.HEADER);
+        TestStores.appendDaily(content, "AAA", LocalDate.of(2024, 1, 2), 30, 1);
+        TestStores.appendDaily(content, "BB\u00C9", LocalDate.of(2024, 1, 2), 7, 3);
+        csv = dir.resolve("stocks.csv");
+        TestStores.write(csv, content);
+        cacheDir = dir.resolve(".stockcache");
+        cache = new CsvBinaryCache(cacheDir);
+    }
+
+    @Test
+    void writeThenReadGivesEqualSeries() throws IOException {
+        TickerSeries odd = TickerSeries.of("ODD", new int[]{-3, 0, 19_000}, new double[]{Double.NaN, -0.0, 1e300},
+                new double[]{1, 2, 3}, new double[]{0.1, 0.2, 0.3}, new double[]{Double.MIN_VALUE, 5, 6},
+                new long[]{Long.MAX_VALUE, 0, -1});
+        TickerSeries empty = TickerSeries.of("EMPTY", new int[0], new double[0], new double[0], new double[0],
+                new double[0], new long[0]);
+        // insertion order puts the empty block last, at an aligned offset past the end of the file
+        Map<String, TickerSeries> series = new LinkedHashMap<>();
+        series.put("ODD", odd);
+        series.put("EMPTY", empty);
+        cache.write(csv, attrs(csv), series);
+
+        Map<String, TickerSeries> read = cache.read(csv, attrs(csv));
+        assertNotNull(read);
+        assertEquals(series.keySet(), read.keySet());
+        series.forEach((ticker, s) -> assertSameSeries(s, read.get(ticker)));
+    }
+
+    @Test
+    void entryIsRejectedAfterModificationTimeOrSizeChanges() throws IOException {
+        Map<String, TickerSeries> parsed = parse();
+        cache.write(csv, attrs(csv), parsed);
+        assertNotNull(cache.read(csv, attrs(csv)));
+
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(Files.getLastModifiedTime(csv).toMillis() + 2000));
+        assertNull(cache.read(csv, attrs(csv)));
+
+        cache.write(csv, attrs(csv), parsed);
+        assertNotNull(cache.read(csv, attrs(csv)));
+        FileTime mtime = Files.getLastModifiedTime(csv);
+        Files.writeString(csv, "2024-03-01,AAA,1,2,0.5,1.5,100\n", StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(csv, mtime);
+        assertNull(cache.read(csv, attrs(csv)));
+    }
+
+    @Test
+    void loaderUsesTheCacheOnlyWhileItIsValid() throws IOException {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        CsvStockLoader loader = new CsvStockLoader(dir.toString(), "msequity.csv", true, "",
+                new ExecutionMode(false), meters);
+        Map<String, TickerSeries> parsed = loader.loadFile(csv);
+        Map<String, TickerSeries> cached = loader.loadFile(csv);
+        assertEquals(1, meters.timer("stocks.csv.load", "outcome", "ok").count());
+        assertEquals(1, meters.timer("stocks.csv.load", "outcome", "cached").count());
+        assertSameData(parsed, cached);
+    }
+
+    @Test
+    void corruptTruncatedOrOutdatedEntryFallsBackToParsing() throws IOException {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        CsvStockLoader loader = new CsvStockLoader(dir.toString(), "msequity.csv", true, "",
+                new ExecutionMode(false), meters);
+        Map<String, TickerSeries> expected = loader.loadFile(csv);
+        Path bin = cacheDir.resolve("stocks.csv.bin");
+        byte[] good = Files.readAllBytes(bin);
+
+        List<byte[]> broken = List.of(
+                new byte[0],
+                new byte[]{1, 2, 3},
+                Arrays.copyOf(good, 20),
+                Arrays.copyOf(good, good.length / 2),
+                Arrays.copyOf(good, good.length - 1),
+                withInt(good, 0, 0x12345678),     // magic
+                withInt(good, 4, 1),              // format version
+                withInt(good, 28, Integer.MAX_VALUE), // header length
+                withInt(good, 28, -1),
+                garbageAfterPreamble(good));
+        int parses = 1;
+        for (byte[] bytes : broken) {
+            Files.write(bin, bytes);
+            assertSameData(expected, loader.loadFile(csv));
+            assertEquals(++parses, meters.timer("stocks.csv.load", "outcome", "ok").count());
+            // parsing rewrote a valid entry
+            assertNotNull(cache.read(csv, attrs(csv)));
+        }
+        assertEquals(0, meters.timer("stocks.csv.load", "outcome", "cached").count());
+    }
+
+    @Test
+    void retainDeletesEntriesOfRemovedCsvs() throws IOException {
+        Path other = dir.resolve("old.csv");
+        Files.copy(csv, other);
+        cache.write(csv, attrs(csv), parse());
+        cache.write(other, attrs(other), parse());
+        Files.writeString(cacheDir.resolve("stale.csv123.tmp"), "x");
+        Files.delete(other);
+
+        cache.retain(List.of(csv));
+
+        assertTrue(Files.exists(cacheDir.resolve("stocks.csv.bin")));
+        assertFalse(Files.exists(cacheDir.resolve("old.csv.bin")));
+        assertFalse(Files.exists(cacheDir.resolve("stale.csv123.tmp")));
+        assertNotNull(cache.read(csv, attrs(csv)));
+    }
+
+    private Map<String, TickerSeries> parse() {
+        return new CsvStockLoader(dir.toString(), "msequity.csv", false, "", new ExecutionMode(false),
+                new SimpleMeterRegistry()).loadFile(csv);
+    }
+
+    private static BasicFileAttributes attrs(Path p) throws IOException {
+        return Files.readAttributes(p, BasicFileAttributes.class);
+    }
+
+    private static byte[] withInt(byte[] bytes, int offset, int value) {
+        byte[] copy = bytes.clone();
+        ByteBuffer.wrap(copy).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+        return copy;
+    }
+
+    // keeps the preamble valid but scrambles the header and blocks
+    private static byte[] garbageAfterPreamble(byte[] bytes) {
+        byte[] copy = bytes.clone();
+        for (int i = 32; i < copy.length; i++) copy[i] = (byte) (i * 31 + 7);
+        return copy;
+    }
+
+    private static void assertSameData(Map<String, TickerSeries> expected, Map<String, TickerSeries> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((ticker, s) -> assertSameSeries(s, actual.get(ticker)));
+    }
+
+    private static void assertSameSeries(TickerSeries expected, TickerSeries actual) {
+        assertEquals(expected.getTicker(), actual.getTicker());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.day(i), actual.day(i));
+            assertEquals(Double.doubleToRawLongBits(expected.open(i)), Double.doubleToRawLongBits(actual.open(i)));
+            assertEquals(Double.doubleToRawLongBits(expected.high(i)), Double.doubleToRawLongBits(actual.high(i)));
+            assertEquals(Double.doubleToRawLongBits(expected.low(i)), Double.doubleToRawLongBits(actual.low(i)));
+            assertEquals(Double.doubleToRawLongBits(expected.close(i)), Double.doubleToRawLongBits(actual.close(i)));
+            assertEquals(expected.volume(i), actual.volume(i));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.TickerSeries;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvFileParserTest {
+
+    private static final String HEADER = "date,ticker,open,high,low,close,volume";
+
+    @TempDir
+    Path dir;
+
+    private CsvFileParser parser;
+
+    @Test
+    void quotedFieldsMayHoldCommasQuotesAndNewlines() throws IOException {
+        Map<String, TickerSeries> series = parse(HEADER + "\n"
+                + "2024-01-02,\"A,B\",1,2,0.5,1.5,100\n"
+                + "2024-01-02,\"Q\"\"T\",\"3\",\"4\",\"2\",\"3.5\",\"200\"\n"
+                + "2024-01-02,\"LINE\nBREAK\",5,6,4,5.5,300\n");
+        assertEquals(3, parser.rows());
+        assertEquals(0, parser.dropped());
+        assertEquals(Map.of("A,B", 1.5, "Q\"T", 3.5, "LINE\nBREAK", 5.5), closes(series));
+        assertEquals(200, series.get("Q\"T").volume(0));
+    }
+
+    @Test
+    void lineEndingsAndByteOrderMarkDoNotChangeTheResult() throws IOException {
+        String lf = HEADER + "\n2024-01-02,AAA,1,2,0.5,1.5,100\n2024-01-03,AAA,2,3,1,2.5,200\n";
+        Map<String, TickerSeries> expected = parse(lf);
+        assertEquals(2, parser.rows());
+
+        assertSame(expected, parse(lf.replace("\n", "\r\n")));
+        assertEquals(0, parser.dropped());
+        assertSame(expected, parse("\uFEFF" + lf));
+        assertEquals(2, parser.rows());
+        assertSame(expected, parse("\uFEFF" + lf.replace("\n", "\r\n")));
+        assertEquals(2, parser.rows());
+    }
+
+    @Test
+    void everySupportedDateFormatIsRead() throws IOException {
+        Map<String, TickerSeries> series = parse(HEADER + "\n"
+                + "2024-01-02,ISO,1,1,1,1,1\n"
+                + "20240103,BASIC,1,1,1,1,1\n"
+                + "04/01/2024,DMY,1,1,1,1,1\n"
+                + "2024-02-29,ISO,1,1,1,1,1\n"
+                + "29/02/2023,DMY,1,1,1,1,1\n");
+        assertEquals(4, parser.rows());
+        assertEquals(1, parser.dropped());
+        assertEquals(LocalDate.of(2024, 1, 2), series.get("ISO").date(0));
+        assertEquals(LocalDate.of(2024, 2, 29), series.get("ISO").date(1));
+        assertEquals(LocalDate.of(2024, 1, 3), series.get("BASIC").date(0));
+        assertEquals(LocalDate.of(2024, 1, 4), series.get("DMY").date(0));
+        assertEquals(1, series.get("DMY").size());
+    }
+
+    @Test
+    void rowsWithBlankOrMalformedNumbersAreDroppedAndCounted() throws IOException {
+        Map<String, TickerSeries> series = parse(HEADER + "\n"
+                + "2024-01-02,AAA,1,2,0.5,1.5,100\n"
+                + "2024-01-03,AAA,1,2,0.5,,100\n"
+                + "2024-01-04,AAA,1,2,0.5,abc,100\n"
+                + "2024-01-05,AAA,1,2,0.5,1.5,\n"
+                + "2024-01-08,AAA,1,2,0.5,1.5,12x\n"
+                + "2024-01-09,AAA,1,2,0.5,1.5,1e3\n"
+                + "2024-13-01,AAA,1,2,0.5,1.5,100\n"
+                + "2024-01-10,,1,2,0.5,1.5,100\n"
+                + "\n"
+                + "2024-01-11,AAA,-1.25,+2,0.5,1e1,-7\n");
+        assertEquals(2, parser.rows());
+        assertEquals(7, parser.dropped());
+        TickerSeries aaa = series.get("AAA");
+        assertEquals(2, aaa.size());
+        assertEquals(-1.25, aaa.open(1));
+        assertEquals(10.0, aaa.close(1));
+        assertEquals(-7, aaa.volume(1));
+    }
+
+    @Test
+    void lastRowWithoutTrailingNewlineIsRead() throws IOException {
+        Map<String, TickerSeries> series = parse(HEADER + "\n"
+                + "2024-01-02,AAA,1,2,0.5,1.5,100\n"
+                + "2024-01-03,\"AAA\",2,3,1,2.5,\"200\"");
+        assertEquals(2, parser.rows());
+        assertEquals(2.5, series.get("AAA").close(1));
+        assertEquals(200, series.get("AAA").volume(1));
+
+        parse(HEADER + "\r\n2024-01-02,AAA,1,2,0.5,1.5,100\r\n2024-01-03,AAA,2,3,1,2.5,200");
+        assertEquals(2, parser.rows());
+        assertEquals(0, parser.dropped());
+    }
+
+    @Test
+    void headerAliasesAndColumnOrderAreRecognized() throws IOException {
+        Map<String, TickerSeries> series = parse("txtno,portid,portdate,opening,high,low,closing,volume\n"
+                + "\"1\",\"BBCA\",\"2025-01-02\",\"9650.000\",\"9900.000\",\"9650.000\",\"9900.000\",\"38124800\"\n");
+        assertEquals(1, parser.rows());
+        assertEquals(9900.0, series.get("BBCA").close(0));
+        assertEquals(9650.0, series.get("BBCA").open(0));
+        assertEquals(38124800, series.get("BBCA").volume(0));
+    }
+
+    private Map<String, TickerSeries> parse(String content) throws IOException {
+        Path file = Files.createTempFile(dir, "prices", ".csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Map<String, TickerSeries.Builder> builders = new HashMap<>();
+        parser = new CsvFileParser(builders);
+        parser.parse(file);
+        Map<String, TickerSeries> series = new TreeMap<>();
+        builders.forEach((ticker, b) -> {
+            if (b.size() > 0) series.put(ticker, b.build());
+        });
+        return series;
+    }
+
+    private static Map<String, Double> closes(Map<String, TickerSeries> series) {
+        Map<String, Double> closes = new HashMap<>();
+        series.forEach((ticker, s) -> closes.put(ticker, s.close(s.size() - 1)));
+        return closes;
+    }
+
+    private static void assertSame(Map<String, TickerSeries> expected, Map<String, TickerSeries> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((ticker, e) -> {
+            TickerSeries a = actual.get(ticker);
+            assertEquals(e.size(), a.size());
+            assertTrue(e.mismatch(a) == e.size(), ticker + " differs at row " + e.mismatch(a));
+        });
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.stocks.service;
+
+import com.example.stocks.config.ExecutionMode;
+import com.example.stocks.model.ChartData;
+import com.example.stocks.model.ExportJob;
+import com.example.stocks.model.QueryResult;
+import com.lowagie.text.DocumentException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportJobServiceTest {
+
+    private static final int CLIENTS = 8;
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final AtomicInteger renders = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean fail;
+    private StockStore store;
+    private StockQueryService queryService;
+    private ChartService chartService;
+    private PdfService pdfService;
+    private ExportJobService exports;
+    private ExecutorService clients;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        StringBuilder csv = new StringBuilder(TestStores.HEADER);
+        TestStores.appendDaily(csv, "AAA", LocalDate.of(2024, 1, 2), 50, 1);
+        TestStores.appendDaily(csv, "BBB", LocalDate.of(2024, 1, 2), 50, 1);
+        TestStores.write(dir.resolve("stocks.csv"), csv);
+        store = TestStores.load(dir);
+        queryService = new StockQueryService(store, 0, meters);
+        chartService = new ChartService(queryService, store, new IndicatorService(0, meters), 0, 0, 1, meters);
+        // counts renders and holds each one until the test has all clients waiting on it
+        pdfService = new PdfService(chartService, dir.resolve("exports").toString(), "Test", "raster",
+                20000, new ExecutionMode(false), meters) {
+            @Override
+            public void writePdf(OutputStream out, String title, ChartData chartData, QueryResult tableData,
+                                 Map<String, String> activeFilters) throws IOException, DocumentException {
+                renders.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (fail) throw new IOException("disk full");
+                super.writePdf(out, title, chartData, tableData, activeFilters);
+            }
+        };
+        exports = newExports(60);
+        clients = Executors.newFixedThreadPool(CLIENTS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.shutdownNow();
+        exports.shutdown();
+        pdfService.shutdown();
+        chartService.shutdown();
+    }
+
+    @Test
+    void concurrentIdenticalExportsShareOneRender() throws Exception {
+        List<Future<Path>> results = startClients(Set.of("AAA", "BBB"));
+        awaitCoalesced(CLIENTS - 1);
+        release.countDown();
+
+        Path first = results.get(0).get(10, TimeUnit.SECONDS);
+        for (Future<Path> r : results) assertEquals(first, r.get(10, TimeUnit.SECONDS));
+        assertEquals(1, renders.get());
+        assertTrue(Files.size(first) > 0);
+        assertEquals(1.0, meters.counter("stocks.export.render", "outcome", "rendered").count());
+
+        // the shared render is not a cache: a later request renders again
+        Path again = exports.render(Set.of("AAA", "BBB"), null, null, "date", "asc");
+        assertEquals(2, renders.get());
+        assertNotEquals(first, again);
+        assertEquals(0, exports.inFlight());
+    }
+
+    @Test
+    void firstStreamRendersAndDuplicatesCopyItsArchive() throws Exception {
+        List<Future<byte[]>> results = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            results.add(clients.submit(() -> {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                exports.stream(Set.of("AAA"), null, null, "date", "asc", out);
+                return out.toByteArray();
+            }));
+        }
+        awaitCoalesced(CLIENTS - 1);
+        release.countDown();
+
+        byte[] first = results.get(0).get(10, TimeUnit.SECONDS);
+        assertTrue(first.length > 0);
+        for (Future<byte[]> r : results) assertArrayEquals(first, r.get(10, TimeUnit.SECONDS));
+        assertEquals(1, renders.get());
+        awaitIdle();
+        try (Stream<Path> archives = Files.list(dir.resolve("exports"))) {
+            List<Path> pdfs = archives.toList();
+            assertEquals(1, pdfs.size(), pdfs.toString());
+            assertArrayEquals(first, Files.readAllBytes(pdfs.get(0)));
+        }
+    }
+
+    @Test
+    void streamWaitersReceiveTheRenderFailure() throws Exception {
+        fail = true;
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            results.add(clients.submit(() -> {
+                exports.stream(Set.of("AAA"), null, null, "date", "asc", new ByteArrayOutputStream());
+                return null;
+            }));
+        }
+        awaitCoalesced(CLIENTS - 1);
+        release.countDown();
+
+        for (Future<?> r : results) {
+            Exception e = assertThrows(Exception.class, () -> r.get(10, TimeUnit.SECONDS));
+            assertEquals("disk full", e.getCause().getMessage());
+        }
+        assertEquals(1, renders.get());
+        awaitIdle();
+
+        // the failed render is forgotten: the next request renders afresh
+        fail = false;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exports.stream(Set.of("AAA"), null, null, "date", "asc", out);
+        assertEquals(2, renders.get());
+        assertTrue(out.size() > 0);
+    }
+
+    @Test
+    void waitersReceiveTheRenderFailure() throws Exception {
+        fail = true;
+        List<Future<Path>> results = startClients(Set.of("AAA"));
+        awaitCoalesced(CLIENTS - 1);
+        release.countDown();
+
+        for (Future<Path> r : results) {
+            Exception e = assertThrows(Exception.class, () -> r.get(10, TimeUnit.SECONDS));
+            assertEquals("disk full", e.getCause().getMessage());
+        }
+        assertEquals(1, renders.get());
+        assertEquals(0, exports.inFlight());
+    }
+
+    @Test
+    void fullQueueRejectsNewJobsButNotDuplicates() throws Exception {
+        ExportJob running = submit(0);
+        awaitRenders(1);
+        List<ExportJob> queued = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) queued.add(submit(i));
+        for (ExportJob job : queued) assertEquals(ExportJob.Status.QUEUED, job.getStatus());
+
+        assertThrows(RejectedExecutionException.class, () -> submit(5));
+        assertEquals(1.0, meters.counter("stocks.export.submit", "outcome", "rejected").count());
+
+        // identical filters get the job that is already running or queued, even with the queue full
+        assertSame(running, submit(0));
+        assertSame(queued.get(2), submit(3));
+        assertSame(queued.get(2), exports.submit(Set.of("BBB", "AAA"), day(3), null, "DATE", "ASC"));
+        assertEquals(3.0, meters.counter("stocks.export.submit", "outcome", "deduplicated").count());
+
+        release.countDown();
+        for (ExportJob job : queued) awaitFinished(job);
+        assertEquals(ExportJob.Status.DONE, running.getStatus());
+        // once finished, the same filters queue a new job
+        ExportJob again = submit(0);
+        assertNotSame(running, again);
+        awaitFinished(again);
+        assertEquals(ExportJob.Status.DONE, again.getStatus());
+    }
+
+    @Test
+    void cleanupRemovesExpiredJobsAndTheirFiles() throws Exception {
+        // with a zero TTL every finished job and old file has expired
+        ExportJobService expiring = newExports(0);
+        try {
+            ExportJob job = expiring.submit(Set.of("AAA"), null, null, "date", "asc");
+            awaitRenders(1);
+            Path stale = Files.writeString(dir.resolve("exports").resolve("stocks_old.pdf"), "x");
+            Path part = Files.writeString(dir.resolve("exports").resolve("stocks_old.pdf.part"), "x");
+            for (Path p : List.of(stale, part)) Files.setLastModifiedTime(p, FileTime.from(Instant.now().minusSeconds(5)));
+
+            expiring.cleanup();
+            assertTrue(expiring.find(job.getId()).isPresent(), "a running job is kept");
+            assertFalse(Files.exists(stale));
+            // partial files may be the running render's own
+            assertTrue(Files.exists(part));
+
+            release.countDown();
+            awaitFinished(job);
+            assertTrue(Files.exists(job.getFile()));
+            expiring.cleanup();
+            assertTrue(expiring.find(job.getId()).isEmpty());
+            assertFalse(Files.exists(job.getFile()));
+            assertFalse(Files.exists(part));
+        } finally {
+            expiring.shutdown();
+        }
+
+        ExportJob kept = submit(0);
+        awaitFinished(kept);
+        exports.cleanup();
+        assertTrue(exports.find(kept.getId()).isPresent());
+        assertTrue(Files.exists(kept.getFile()));
+    }
+
+    private ExportJobService newExports(long ttlMinutes) {
+        return new ExportJobService(queryService, chartService, pdfService, store,
+                dir.resolve("exports").toString(), 1, 4, ttlMinutes, new ExecutionMode(false), meters);
+    }
+
+    // distinct filters per i: start dates inside the data give distinct export keys
+    private ExportJob submit(int i) {
+        return exports.submit(Set.of("AAA", "BBB"), day(i), null, "date", "asc");
+    }
+
+    private static LocalDate day(int i) {
+        return LocalDate.of(2024, 1, 2).plusDays(i);
+    }
+
+    private void awaitRenders(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (renders.get() < expected) {
+            assertTrue(System.nanoTime() < deadline, "render did not start");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void awaitFinished(ExportJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (job.isPending()) {
+            assertTrue(System.nanoTime() < deadline, "job " + job.getId() + " did not finish");
+            Thread.sleep(5);
+        }
+    }
+
+    private List<Future<Path>> startClients(Set<String> tickers) {
+        List<Future<Path>> results = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            results.add(clients.submit(() -> exports.render(tickers, null, null, "date", "asc")));
+        }
+        return results;
+    }
+
+    // a streamed render stays in flight until its archive copy is complete
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (exports.inFlight() > 0) {
+            assertTrue(System.nanoTime() < deadline, "render still in flight");
+            Thread.sleep(5);
+        }
+    }
+
+    private void awaitCoalesced(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (meters.counter("stocks.export.render", "outcome", "coalesced").count() < expected) {
+            assertTrue(System.nanoTime() < deadline, "clients did not join the running render");
+            Thread.sleep(5);
+        }
+    }
+}
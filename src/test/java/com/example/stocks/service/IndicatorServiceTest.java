@@ -0,0 +1,87 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.Interval;
+import com.example.stocks.model.TickerSeries;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IndicatorServiceTest {
+
+    private static final List<Indicators.Spec> SPECS = Indicators.parse("sma5,ema5,vwap5,bb5,rsi5");
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final IndicatorService indicators = new IndicatorService(32 << 20, meters);
+    private StringBuilder csv;
+    private Path file;
+    private StockStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        csv = new StringBuilder(TestStores.HEADER);
+        // Monday 2024-01-01 .. Friday 2024-03-29, so the next day extends the open week and the one after opens a new week
+        TestStores.appendDaily(csv, "AAA", LocalDate.of(2024, 1, 1), 89, 1);
+        file = dir.resolve("stocks.csv");
+        TestStores.write(file, csv);
+        store = TestStores.load(dir);
+    }
+
+    @Test
+    void appendedDaysOnlyExtendTheCachedState() throws IOException {
+        computeAll();
+        for (int day = 0; day < 4; day++) {
+            csv.append(LocalDate.of(2024, 3, 29).plusDays(1 + day)).append(",AAA,1,3,0.5,").append(2 + day)
+                    .append(',').append(500 + day).append('\n');
+            TestStores.write(file, csv);
+            store.reloadFile(file);
+            computeAll();
+        }
+        // every interval and indicator continued from its cached state after each append
+        assertEquals(SPECS.size() * Interval.values().length * 4, count("extended"));
+        assertEquals(SPECS.size() * Interval.values().length, count("full"));
+    }
+
+    @Test
+    void rewrittenHistoryIsRecomputed() throws IOException {
+        computeAll();
+        int at = csv.indexOf("2024-01-10,AAA,");
+        int end = csv.indexOf("\n", at);
+        csv.replace(at, end, "2024-01-10,AAA,1,300,1,250,1");
+        TestStores.write(file, csv);
+        store.reloadFile(file);
+        computeAll();
+        // the whole history is one open 2024 bar, which is re-pushed anyway; every other interval starts over
+        assertEquals(SPECS.size(), count("extended"));
+        assertEquals(SPECS.size() * (2 * Interval.values().length - 1), count("full"));
+    }
+
+    // compares each incremental result with a computation from scratch
+    private void computeAll() {
+        for (Interval interval : Interval.values()) {
+            TickerSeries s = store.snapshot().series(interval).get("AAA");
+            for (Indicators.Spec spec : SPECS) {
+                double[][] actual = indicators.compute(s, interval, spec);
+                double[][] expected = Indicators.compute(spec, s).values;
+                for (int k = 0; k < expected.length; k++) {
+                    assertArrayEquals(expected[k], actual[k], 1e-9, interval + " " + spec.code());
+                }
+            }
+        }
+    }
+
+    private double count(String outcome) {
+        return meters.counter("stocks.indicator.compute", "outcome", outcome).count();
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.ScreenRow;
+import com.example.stocks.model.TickerFilter;
+import com.example.stocks.service.ScreenerService.Criteria;
+import com.example.stocks.service.ScreenerService.Metric;
+import com.example.stocks.service.ScreenerService.Screen;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScreenerServiceTest {
+
+    private static final int TICKERS = 100;
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate LAST = START.plusDays(19);
+
+    @TempDir
+    Path dir;
+
+    private ScreenerService screener;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        StringBuilder csv = new StringBuilder(TestStores.HEADER);
+        // slopes are scattered over the ticker names so every fork-join leaf holds winners and losers
+        for (int k = 0; k < TICKERS; k++) {
+            int slope = (k * 37) % TICKERS - 50;
+            for (int i = 0; i < 20; i++) {
+                csv.append(START.plusDays(i)).append(',').append(ticker(k)).append(",1,1,1,")
+                        .append(1000 + slope * i).append(',').append(100 * k + i).append('\n');
+            }
+        }
+        // one close in the last five days, and none at all after the first week
+        csv.append(LAST.minusDays(1)).append(",SPARSE,1,1,1,50,10\n");
+        csv.append(START).append(",STALE,1,1,1,50,10\n");
+        TestStores.write(dir.resolve("stocks.csv"), csv);
+        screener = new ScreenerService(TestStores.load(dir), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void windowIncludesAsOfAndSpansExactlyDays() {
+        Screen screen = screener.screen(criteria(Metric.CLOSE, true, 5, null, null, null));
+        assertEquals(LAST.minusDays(4), screen.from());
+        assertEquals(LAST, screen.asOf());
+        ScreenRow top = screen.rows().get(0);
+        assertEquals(5, top.getRows());
+        assertEquals(LAST.minusDays(4), top.getFirstDate());
+        assertEquals(LAST, top.getLastDate());
+
+        Screen oneDay = screener.screen(new Criteria(TickerFilter.all(), LAST.minusDays(3), 1, Metric.CLOSE, true,
+                5, null, null, null));
+        assertEquals(oneDay.from(), oneDay.asOf());
+        assertEquals(1, oneDay.rows().get(0).getRows());
+    }
+
+    @Test
+    void topRowsMatchAFullSortInBothDirections() {
+        for (boolean desc : new boolean[]{true, false}) {
+            for (Metric metric : Metric.values()) {
+                Screen screen = screener.screen(criteria(metric, desc, 10, null, null, null));
+                List<ScreenRow> all = screener.screen(criteria(metric, desc, 10, null, null, null, 1000)).rows();
+                assertEquals(TICKERS + 2, screen.screened());
+                assertEquals(all.size(), screen.matched());
+                assertEquals(names(all).subList(0, 7), names(screen.rows()));
+                assertSorted(all, metric, desc);
+            }
+        }
+    }
+
+    @Test
+    void boundsFilterRows() {
+        Screen screen = screener.screen(criteria(Metric.RETURN, true, 10, 5000.0, -1.0, 2.0, 1000));
+        assertTrue(screen.matched() > 0 && screen.matched() < TICKERS);
+        assertEquals(screen.matched(), screen.rows().size());
+        for (ScreenRow r : screen.rows()) {
+            assertTrue(r.getAvgVolume() >= 5000, r.getTicker());
+            assertTrue(r.getChangePercent() >= -1 && r.getChangePercent() <= 2, r.getTicker());
+        }
+        int expected = 0;
+        for (int k = 0; k < TICKERS; k++) {
+            int slope = (k * 37) % TICKERS - 50;
+            double change = ((1000.0 + slope * 19) / (1000 + slope * 10) - 1) * 100;
+            if (100 * k + 14.5 >= 5000 && change >= -1 && change <= 2) expected++;
+        }
+        assertEquals(expected, screen.matched());
+    }
+
+    @Test
+    void tickersWithTooFewRowsAreLeftOut() {
+        // a single close has no return, and a ticker without rows in the window has nothing at all
+        List<String> byReturn = names(screener.screen(criteria(Metric.RETURN, true, 10, null, null, null, 1000)).rows());
+        assertEquals(TICKERS, byReturn.size());
+        assertTrue(!byReturn.contains("SPARSE") && !byReturn.contains("STALE"));
+
+        List<String> byClose = names(screener.screen(criteria(Metric.CLOSE, true, 10, null, null, null, 1000)).rows());
+        assertEquals(TICKERS + 1, byClose.size());
+        assertTrue(byClose.contains("SPARSE") && !byClose.contains("STALE"));
+    }
+
+    private static Criteria criteria(Metric metric, boolean desc, int days, Double minAvgVolume, Double minReturn,
+                                     Double maxReturn) {
+        return criteria(metric, desc, days, minAvgVolume, minReturn, maxReturn, 7);
+    }
+
+    private static Criteria criteria(Metric metric, boolean desc, int days, Double minAvgVolume, Double minReturn,
+                                     Double maxReturn, int limit) {
+        return new Criteria(TickerFilter.all(), null, days, metric, desc, limit, minAvgVolume, minReturn, maxReturn);
+    }
+
+    private static void assertSorted(List<ScreenRow> rows, Metric metric, boolean desc) {
+        Comparator<ScreenRow> byValue = Comparator.comparingDouble(r -> switch (metric) {
+            case RETURN -> r.getChangePercent();
+            case AVG_VOLUME -> r.getAvgVolume();
+            case CLOSE -> r.getLastClose();
+        });
+        Comparator<ScreenRow> order = (desc ? byValue.reversed() : byValue).thenComparing(ScreenRow::getTicker);
+        List<ScreenRow> sorted = new ArrayList<>(rows);
+        sorted.sort(order);
+        assertEquals(names(sorted), names(rows));
+    }
+
+    private static List<String> names(List<ScreenRow> rows) {
+        List<String> names = new ArrayList<>();
+        for (ScreenRow r : rows) names.add(r.getTicker());
+        return names;
+    }
+
+    private static String ticker(int k) {
+        return String.format("T%03d", k);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.PageCursor;
+import com.example.stocks.model.QueryResult;
+import com.example.stocks.model.StockPrice;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StockQueryServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private StockQueryService queryService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // close and volume take only a few distinct values, so every sort key has long runs of ties
+        StringBuilder csv = new StringBuilder(TestStores.HEADER);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        String[] tickers = {"AAA", "BBB", "CCC", "DDD"};
+        for (int t = 0; t < tickers.length; t++) {
+            for (int d = 0; d < 40; d++) {
+                double close = 100 + (d + t) % 3;
+                long volume = 1000L * ((d * 7 + t) % 4);
+                csv.append(start.plusDays(d)).append(',').append(tickers[t]).append(',')
+                        .append(close).append(',').append(close + 1).append(',').append(close - 1).append(',')
+                        .append(close).append(',').append(volume).append('\n');
+            }
+        }
+        TestStores.write(dir.resolve("stocks.csv"), csv);
+        // a file without high, low and close columns: EEE's prices there are missing (NaN)
+        StringBuilder partial = new StringBuilder("date,ticker,open,volume\n");
+        for (int d = 0; d < 10; d++) partial.append(start.plusDays(d)).append(",EEE,100,").append(d % 2 * 1000).append('\n');
+        TestStores.write(dir.resolve("partial.csv"), partial);
+        queryService = new StockQueryService(TestStores.load(dir), 0, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void walkingAllPagesMatchesTheUnpagedResult() {
+        for (String sortBy : new String[]{"date", "ticker", "open", "high", "low", "close", "volume"}) {
+            for (String sortDir : new String[]{"asc", "desc"}) {
+                for (int limit : new int[]{1, 7, 50, 1000}) {
+                    assertPagesMatch(null, sortBy, sortDir, limit);
+                }
+                assertPagesMatch(Set.of("BBB", "DDD"), sortBy, sortDir, 9);
+            }
+        }
+    }
+
+    @Test
+    void missingPricesSortLastInBothDirections() {
+        for (String sortBy : new String[]{"high", "low", "close"}) {
+            for (String sortDir : new String[]{"asc", "desc"}) {
+                List<StockPrice> rows = queryService.query(null, null, null, sortBy, sortDir);
+                List<StockPrice> tail = rows.subList(rows.size() - 10, rows.size());
+                for (StockPrice p : tail) assertEquals("EEE", p.getTicker(), sortBy + " " + sortDir);
+                for (StockPrice p : rows.subList(0, rows.size() - 10)) assertNotNull(p.getClose());
+                // ties among missing prices keep the (ticker, date) order of the direction
+                LocalDate first = tail.get(0).getDate();
+                assertEquals("desc".equals(sortDir) ? LocalDate.of(2024, 1, 10) : LocalDate.of(2024, 1, 1), first);
+
+                QueryResult top = queryService.page(null, null, null, sortBy, sortDir, 3, null);
+                assertNotNull(top.toList().get(0).getClose());
+            }
+        }
+    }
+
+    @Test
+    void cursorForAnotherSortIsRejected() {
+        QueryResult first = queryService.page(null, null, null, "close", "asc", 5, null);
+        PageCursor next = first.getNext();
+        assertThrows(IllegalArgumentException.class,
+                () -> queryService.page(null, null, null, "close", "desc", 5, next));
+        assertThrows(IllegalArgumentException.class,
+                () -> queryService.page(null, null, null, "volume", "asc", 5, next));
+    }
+
+    private void assertPagesMatch(Set<String> tickers, String sortBy, String sortDir, int limit) {
+        String label = sortBy + " " + sortDir + " limit " + limit + " " + tickers;
+        List<StockPrice> expected = queryService.query(tickers, null, null, sortBy, sortDir);
+        List<StockPrice> walked = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        PageCursor cursor = null;
+        int pages = 0;
+        do {
+            // survive a round trip through the wire format, as clients do
+            PageCursor after = cursor == null ? null : PageCursor.decode(cursor.encode());
+            QueryResult page = queryService.page(tickers, null, null, sortBy, sortDir, limit, after);
+            assertTrue(page.size() <= limit, label);
+            for (StockPrice p : page.toList()) {
+                assertTrue(seen.add(p.getTicker() + " " + p.getDate()), label + " duplicate " + p.getTicker() + " " + p.getDate());
+                walked.add(p);
+            }
+            cursor = page.getNext();
+            if (cursor != null) assertFalse(page.isEmpty(), label);
+            assertTrue(++pages <= expected.size() + 1, label + " does not terminate");
+        } while (cursor != null);
+
+        assertEquals(expected.size(), walked.size(), label);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(key(expected.get(i)), key(walked.get(i)), label + " row " + i);
+        }
+        assertNull(cursor);
+    }
+
+    private static String key(StockPrice p) {
+        return p.getTicker() + " " + p.getDate() + " " + p.getClose() + " " + p.getVolume();
+    }
+}
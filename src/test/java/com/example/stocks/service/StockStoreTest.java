@@ -0,0 +1,89 @@
+package com.example.stocks.service;
+
+import com.example.stocks.model.Interval;
+import com.example.stocks.model.StockSnapshot;
+import com.example.stocks.model.TickerSeries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static com.example.stocks.service.TestStores.HEADER;
+import static com.example.stocks.service.TestStores.appendDaily;
+import static com.example.stocks.service.TestStores.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StockStoreTest {
+
+    // 2023-11-01 .. 2024-01-10 (a Wednesday)
+    private static final LocalDate START = LocalDate.of(2023, 11, 1);
+    private static final int DAYS = 71;
+
+    @TempDir
+    Path dir;
+
+    private Path aaa;
+    private StockStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        aaa = dir.resolve("aaa.csv");
+        write(aaa, csv(DAYS));
+        StringBuilder bbb = new StringBuilder(HEADER);
+        appendDaily(bbb, "BBB", START, DAYS, 1);
+        write(dir.resolve("bbb.csv"), bbb);
+        store = TestStores.load(dir);
+    }
+
+    @Test
+    void appendInsideTheOpenBucket() throws Exception {
+        assertReloadMatchesFullRollup(csv(DAYS + 1));
+    }
+
+    @Test
+    void appendOpeningANewBucket() throws Exception {
+        // up to Sunday 2023-12-31, then Monday 2024-01-01
+        write(aaa, csv(61));
+        store.reloadFile(aaa);
+        assertReloadMatchesFullRollup(csv(62));
+    }
+
+    @Test
+    void rewriteInTheMiddle() throws Exception {
+        assertReloadMatchesFullRollup(csv(DAYS).append(START.plusDays(30)).append(",AAA,1,500,0.5,2,7\n"));
+    }
+
+    @Test
+    void deleteRows() throws Exception {
+        assertReloadMatchesFullRollup(csv(DAYS - 3));
+        assertReloadMatchesFullRollup(csv(40));
+    }
+
+    private void assertReloadMatchesFullRollup(CharSequence content) throws Exception {
+        StockSnapshot before = store.snapshot();
+        write(aaa, content);
+        store.reloadFile(aaa);
+        StockSnapshot after = store.snapshot();
+        assertNotSame(before, after);
+        for (Interval interval : new Interval[]{Interval.WEEK, Interval.MONTH, Interval.YEAR}) {
+            Map<String, TickerSeries> bars = after.series(interval);
+            TickerSeries full = after.getSeries().get("AAA").rollup(interval);
+            TickerSeries incremental = bars.get("AAA");
+            assertEquals(full.size(), incremental.size(), interval.code());
+            assertEquals(full.size(), full.mismatch(incremental), interval.code());
+            // the untouched ticker keeps the very same bars
+            assertSame(before.series(interval).get("BBB"), bars.get("BBB"));
+        }
+    }
+
+    private static StringBuilder csv(int days) {
+        StringBuilder sb = new StringBuilder(HEADER);
+        appendDaily(sb, "AAA", START, days, 1);
+        return sb;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.stocks.service;
+
+import com.example.stocks.config.ExecutionMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/** Hand-wired services over a directory of CSV files, the same way the JMH fixture builds them. */
+final class TestStores {
+
+    static final String HEADER = "date,ticker,open,high,low,close,volume\n";
+
+    private TestStores() {
+    }
+
+    static StockStore load(Path dir) {
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        StockStore store = new StockStore(
+                new CsvStockLoader(dir.toString(), "msequity.csv", false, "", new ExecutionMode(false), meters),
+                event -> { }, meters);
+        store.load();
+        return store;
+    }
+
+    /** Appends {@code days} consecutive daily rows for {@code ticker} starting at {@code start}, every {@code step} days. */
+    static void appendDaily(StringBuilder csv, String ticker, LocalDate start, int days, int step) {
+        for (int i = 0; i < days; i++) {
+            double close = 100 + 10 * Math.sin(i / 5.0) + i % 7;
+            csv.append(start.plusDays((long) i * step)).append(',').append(ticker).append(',')
+                    .append(close - 1).append(',').append(close + 2).append(',').append(close - 2).append(',')
+                    .append(close).append(',').append(1000 + i).append('\n');
+        }
+    }
+
+    static void write(Path file, CharSequence content) throws IOException {
+        Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.stocks.web;
+
+import com.example.stocks.config.ExecutionMode;
+import com.example.stocks.service.ChartService;
+import com.example.stocks.service.CsvStockLoader;
+import com.example.stocks.service.ExportJobService;
+import com.example.stocks.service.ScreenerService;
+import com.example.stocks.service.SnapshotChangedEvent;
+import com.example.stocks.service.StockQueryService;
+import com.example.stocks.service.StockStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class LiveFeedBroadcasterTest {
+
+    private static final String HEADER = "date,ticker,open,high,low,close,volume\n";
+
+    @TempDir
+    Path dir;
+
+    // same date handling as the Boot mapper: ISO strings rather than arrays
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    // runs drain tasks only when the test says so, so changes can pile up in between
+    private final ManualExecutor sender = new ManualExecutor();
+    private final StringBuilder prices = new StringBuilder(HEADER);
+    private StockStore store;
+    private LiveFeedBroadcaster feed;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Monday 2024-01-01 .. Wednesday 2024-01-10
+        for (LocalDate d = LocalDate.of(2024, 1, 1); d.isBefore(LocalDate.of(2024, 1, 11)); d = d.plusDays(1)) {
+            prices.append(d).append(",AAA,1,2,0.5,1.5,100\n").append(d).append(",BBB,1,2,0.5,1.5,100\n");
+        }
+        Files.writeString(dir.resolve("stocks.csv"), prices);
+        Files.writeString(dir.resolve("other.csv"), HEADER + "2024-01-02,CCC,1,2,0.5,1.5,100\n");
+        Files.writeString(dir.resolve("msequity.csv"), "portid,portname,sectorid,sector,subsectorid,subsector\n"
+                + "AAA,Alpha,S1,Finance,SS1,Banks\n"
+                + "BBB,Beta,S2,Energy,SS2,Oil\n");
+        store = new StockStore(new CsvStockLoader(dir.toString(), "msequity.csv", false, "",
+                new ExecutionMode(false), meters), event -> {
+                    if (feed != null) feed.onSnapshotChanged((SnapshotChangedEvent) event);
+                }, meters);
+        store.load();
+        connect(2);
+    }
+
+    private void connect(int maxClients) {
+        if (feed != null) feed.shutdown();
+        feed = new LiveFeedBroadcaster(store, sender, 2, 60_000, maxClients, meters);
+        StocksController controller = new StocksController(new StockQueryService(store, 0, meters),
+                mock(ChartService.class), mock(ExportJobService.class), mock(ScreenerService.class),
+                feed, new StockRowWriter(json));
+        mvc = MockMvcBuilders.standaloneSetup(controller)
+                .setMessageConverters(new StringHttpMessageConverter(), new MappingJackson2HttpMessageConverter(json))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.shutdown();
+    }
+
+    @Test
+    void subscriberOnlyReceivesItsTickers() throws Exception {
+        MvcResult aaa = subscribe("/api/stocks/stream?tickers=AAA");
+        sender.runAll();
+        assertEquals(List.of("hello"), names(aaa));
+
+        append("2024-01-11", "AAA", "BBB");
+        sender.runAll();
+        List<JsonNode> bars = events(aaa, "bars");
+        assertEquals(1, bars.size());
+        JsonNode updates = bars.get(0).get("updates");
+        assertEquals(1, updates.size());
+        assertEquals("AAA", updates.get(0).get("ticker").asText());
+        assertEquals("2024-01-11", updates.get(0).get("from").asText());
+        assertEquals(1, updates.get(0).get("bars").size());
+
+        append("2024-01-12", "BBB");
+        sender.runAll();
+        assertEquals(1, events(aaa, "bars").size());
+    }
+
+    @Test
+    void sectorFilterSelectsMembers() throws Exception {
+        MvcResult energy = subscribe("/api/stocks/stream?sector=energy");
+        append("2024-01-11", "AAA", "BBB");
+        sender.runAll();
+        JsonNode updates = events(energy, "bars").get(0).get("updates");
+        assertEquals(1, updates.size());
+        assertEquals("BBB", updates.get(0).get("ticker").asText());
+    }
+
+    @Test
+    void pendingChangesCoalescePerTicker() throws Exception {
+        MvcResult all = subscribe("/api/stocks/stream?tickers=AAA");
+        sender.runAll();
+        append("2024-01-11", "AAA");
+        append("2024-01-12", "AAA");
+        sender.runAll();
+
+        List<JsonNode> bars = events(all, "bars");
+        assertEquals(1, bars.size());
+        JsonNode update = bars.get(0).get("updates").get(0);
+        assertEquals("2024-01-11", update.get("from").asText());
+        assertEquals(2, update.get("bars").size());
+        assertEquals(store.snapshot().getVersion(), bars.get(0).get("version").asLong());
+    }
+
+    @Test
+    void weeklySubscriberGetsTheRewrittenWeek() throws Exception {
+        MvcResult weekly = subscribe("/api/stocks/stream?tickers=AAA&interval=1w");
+        MvcResult daily = subscribe("/api/stocks/stream?tickers=AAA");
+        append("2024-01-11", "AAA");
+        sender.runAll();
+
+        JsonNode week = events(weekly, "bars").get(0);
+        assertEquals("1w", week.get("interval").asText());
+        JsonNode update = week.get("updates").get(0);
+        assertEquals("2024-01-08", update.get("from").asText());
+        assertEquals(1, update.get("bars").size());
+        assertEquals("2024-01-11", events(daily, "bars").get(0).get("updates").get(0).get("from").asText());
+    }
+
+    @Test
+    void overflowTurnsIntoResync() throws Exception {
+        MvcResult all = subscribe("/api/stocks/stream");
+        sender.runAll();
+        // three changed tickers against a buffer of two
+        append("2024-01-11", "AAA", "BBB");
+        Files.writeString(dir.resolve("other.csv"), HEADER + "2024-01-02,CCC,1,2,0.5,1.5,100\n"
+                + "2024-01-03,CCC,1,2,0.5,1.5,100\n");
+        store.reloadFile(dir.resolve("other.csv"));
+        sender.runAll();
+
+        assertEquals(List.of("hello", "resync"), names(all));
+        assertEquals(1, meters.counter("stocks.stream.overflow").count());
+
+        // after the resync the subscriber is back to normal updates
+        append("2024-01-12", "AAA");
+        sender.runAll();
+        assertEquals(List.of("hello", "resync", "bars"), names(all));
+    }
+
+    @Test
+    void removedTickersAreReported() throws Exception {
+        MvcResult all = subscribe("/api/stocks/stream");
+        Files.delete(dir.resolve("other.csv"));
+        store.reloadFile(dir.resolve("other.csv"));
+        sender.runAll();
+
+        JsonNode bars = events(all, "bars").get(0);
+        assertEquals(0, bars.get("updates").size());
+        assertEquals("CCC", bars.get("removed").get(0).asText());
+    }
+
+    @Test
+    void disconnectedSubscriberIsRemoved() throws Exception {
+        MvcResult first = subscribe("/api/stocks/stream");
+        subscribe("/api/stocks/stream");
+        sender.runAll();
+        assertEquals(2.0, meters.get("stocks.stream.clients").gauge().value());
+
+        first.getRequest().getAsyncContext().complete();
+        assertEquals(1.0, meters.get("stocks.stream.clients").gauge().value());
+        append("2024-01-11", "AAA");
+        sender.runAll();
+        assertEquals(List.of("hello"), names(first));
+    }
+
+    @Test
+    void connectionsOverTheCapAreRejected() throws Exception {
+        connect(1);
+        subscribe("/api/stocks/stream");
+        mvc.perform(get("/api/stocks/stream")).andExpect(status().isServiceUnavailable());
+    }
+
+    private MvcResult subscribe(String url) throws Exception {
+        return mvc.perform(get(url)).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private void append(String date, String... tickers) throws Exception {
+        for (String t : tickers) prices.append(date).append(',').append(t).append(",1,3,0.5,2,200\n");
+        Files.writeString(dir.resolve("stocks.csv"), prices);
+        store.reloadFile(dir.resolve("stocks.csv"));
+    }
+
+    private static List<String> names(MvcResult result) throws Exception {
+        List<String> names = new ArrayList<>();
+        for (String[] e : parse(result)) names.add(e[0]);
+        return names;
+    }
+
+    private List<JsonNode> events(MvcResult result, String name) throws Exception {
+        List<JsonNode> data = new ArrayList<>();
+        for (String[] e : parse(result)) {
+            if (e[0].equals(name)) data.add(json.readTree(e[1]));
+        }
+        return data;
+    }
+
+    // {name, data} of each named event; comment frames are skipped
+    private static List<String[]> parse(MvcResult result) throws Exception {
+        List<String[]> events = new ArrayList<>();
+        for (String frame : result.getResponse().getContentAsString().split("\n\n")) {
+            String name = null;
+            StringBuilder data = new StringBuilder();
+            for (String line : frame.split("\n")) {
+                if (line.startsWith("event:")) name = line.substring(6);
+                else if (line.startsWith("data:")) data.append(line.substring(5));
+            }
+            if (name != null) events.add(new String[]{name, data.toString()});
+        }
+        return events;
+    }
+
+    private static final class ManualExecutor extends AbstractExecutorService {
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private boolean shutdown;
+
+        void runAll() {
+            Runnable r;
+            while ((r = tasks.poll()) != null) r.run();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            List<Runnable> pending = new ArrayList<>(tasks);
+            tasks.clear();
+            return pending;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && tasks.isEmpty();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return isTerminated();
+        }
+    }
+}
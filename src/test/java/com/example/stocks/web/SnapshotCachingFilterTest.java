@@ -0,0 +1,166 @@
+package com.example.stocks.web;
+
+import com.example.stocks.config.ExecutionMode;
+import com.example.stocks.service.ChartService;
+import com.example.stocks.service.CsvStockLoader;
+import com.example.stocks.service.ExportJobService;
+import com.example.stocks.service.ScreenerService;
+import com.example.stocks.service.StockQueryService;
+import com.example.stocks.service.StockStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class SnapshotCachingFilterTest {
+
+    private static final String LIST = "/api/stocks/list?tickers=AAA,BBB&limit=20";
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper json = JsonMapper.builder().findAndAddModules().build();
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private StockStore store;
+    private SnapshotCachingFilter filter;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        StringBuilder csv = new StringBuilder("date,ticker,open,high,low,close,volume\n");
+        for (LocalDate d = LocalDate.of(2024, 1, 1); d.isBefore(LocalDate.of(2024, 2, 1)); d = d.plusDays(1)) {
+            for (String t : new String[]{"AAA", "BBB", "CCC"}) {
+                csv.append(d).append(',').append(t).append(",1,2,0.5,1.5,100\n");
+            }
+        }
+        Files.writeString(dir.resolve("stocks.csv"), csv);
+        store = new StockStore(new CsvStockLoader(dir.toString(), "msequity.csv", false, "",
+                new ExecutionMode(false), meters), event -> { }, meters);
+        store.load();
+        setUp(1 << 20);
+    }
+
+    private void setUp(int maxBodyBytes) {
+        filter = new SnapshotCachingFilter(store, 1 << 24, "no-cache", 256, maxBodyBytes, meters);
+        StocksController controller = new StocksController(new StockQueryService(store, 0, meters),
+                mock(ChartService.class), mock(ExportJobService.class), mock(ScreenerService.class),
+                mock(LiveFeedBroadcaster.class), new StockRowWriter(json));
+        mvc = MockMvcBuilders.standaloneSetup(controller).addFilters(filter).build();
+    }
+
+    @Test
+    void ifNoneMatchAcceptsEitherEncodingsTag() throws Exception {
+        MockHttpServletResponse plain = send(get(LIST));
+        MockHttpServletResponse gzip = send(get(LIST).header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+        String tag = plain.getHeader(HttpHeaders.ETAG);
+        String gzipTag = gzip.getHeader(HttpHeaders.ETAG);
+        assertNotEquals(tag, gzipTag);
+
+        for (String candidate : new String[]{tag, gzipTag, "W/" + tag, "\"other\", " + gzipTag, "*"}) {
+            MockHttpServletResponse r = send(get(LIST).header(HttpHeaders.IF_NONE_MATCH, candidate));
+            assertEquals(304, r.getStatus(), candidate);
+            assertEquals(0, r.getContentLength());
+            assertEquals(tag, r.getHeader(HttpHeaders.ETAG));
+        }
+        assertEquals(200, send(get(LIST).header(HttpHeaders.IF_NONE_MATCH, "\"other\"")).getStatus());
+    }
+
+    @Test
+    void ifModifiedSinceOnlyAppliesWithoutIfNoneMatch() throws Exception {
+        long modified = send(get(LIST)).getDateHeader(HttpHeaders.LAST_MODIFIED);
+        assertTrue(modified > 0);
+
+        assertEquals(304, send(get(LIST).header(HttpHeaders.IF_MODIFIED_SINCE, modified)).getStatus());
+        assertEquals(200, send(get(LIST).header(HttpHeaders.IF_MODIFIED_SINCE, modified - 1000)).getStatus());
+        assertEquals(200, send(get(LIST).header(HttpHeaders.IF_MODIFIED_SINCE, modified)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"other\"")).getStatus());
+    }
+
+    @Test
+    void etagIgnoresParameterAndListOrder() throws Exception {
+        String tag = send(get(LIST)).getHeader(HttpHeaders.ETAG);
+        assertEquals(tag, send(get("/api/stocks/list?limit=20&tickers=BBB,AAA")).getHeader(HttpHeaders.ETAG));
+        assertEquals(tag, send(get("/api/stocks/list?tickers=BBB&limit=20&tickers=AAA,BBB")).getHeader(HttpHeaders.ETAG));
+        assertNotEquals(tag, send(get("/api/stocks/list?tickers=AAA,BBB&limit=21")).getHeader(HttpHeaders.ETAG));
+
+        Files.writeString(dir.resolve("stocks.csv"), "date,ticker,open,high,low,close,volume\n"
+                + "2024-01-02,AAA,1,2,0.5,1.5,100\n");
+        store.reloadFile(dir.resolve("stocks.csv"));
+        assertNotEquals(tag, send(get(LIST)).getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void cachedBodyIsServedGzippedOrPlain() throws Exception {
+        MockHttpServletResponse plain = send(get(LIST));
+        MockHttpServletResponse gzip = send(get(LIST).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"));
+
+        assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("gzip", gzip.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(gzip.getContentAsByteArray().length, gzip.getContentLength());
+        assertEquals(plain.getContentAsString(), gunzip(gzip.getContentAsByteArray()));
+        assertEquals(1, filter.getCache().size());
+        assertEquals(1, outcome("miss"));
+        assertEquals(1, outcome("hit"));
+    }
+
+    @Test
+    void largeBodiesPassThroughUncached() throws Exception {
+        String full = send(get(LIST)).getContentAsString();
+        setUp(512);
+        MockHttpServletResponse r = send(get(LIST).header(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+        assertTrue(full.length() > 512);
+        assertEquals(full, r.getContentAsString());
+        assertNull(r.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertNotNull(r.getHeader(HttpHeaders.ETAG));
+        assertEquals(0, filter.getCache().size());
+        assertEquals(1, outcome("bypass"));
+    }
+
+    @Test
+    void streamingFormatsAreNeverBuffered() throws Exception {
+        for (String format : new String[]{"stream", "ndjson"}) {
+            MockHttpServletResponse r = mvc.perform(get(LIST + "&format=" + format)).andReturn().getResponse();
+            assertNotNull(r.getHeader(HttpHeaders.ETAG));
+        }
+        assertEquals(0, filter.getCache().size());
+        assertEquals(2, outcome("bypass"));
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequestBuilder request) throws Exception {
+        return mvc.perform(request).andReturn().getResponse();
+    }
+
+    private double outcome(String outcome) {
+        return meters.counter("stocks.http.cache", "outcome", outcome).count();
+    }
+
+    private static String gunzip(byte[] gzip) throws Exception {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.stocks.web;
+
+import com.example.stocks.config.ExecutionMode;
+import com.example.stocks.model.ExportJob;
+import com.example.stocks.service.ChartService;
+import com.example.stocks.service.CsvStockLoader;
+import com.example.stocks.service.ExportJobService;
+import com.example.stocks.service.ScreenerService;
+import com.example.stocks.service.StockQueryService;
+import com.example.stocks.service.StockStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class StocksControllerTest {
+
+    @TempDir
+    Path dir;
+
+    private MockMvc mvc;
+    private final ExportJobService exportJobService = mock(ExportJobService.class);
+    private final ObjectMapper json = JsonMapper.builder().findAndAddModules().build();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.writeString(dir.resolve("stocks.csv"), "date,ticker,open,high,low,close,volume\n"
+                + "2024-01-02,AAA,1,2,0.5,1.5,100\n"
+                + "2024-01-03,AAA,1,2,0.5,1.5,100\n"
+                + "2024-01-02,BBB,1,2,0.5,1.5,100\n"
+                + "2024-01-03,BBB,1,2,0.5,1.5,100\n");
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        StockStore store = new StockStore(new CsvStockLoader(dir.toString(), "msequity.csv", false, "",
+                new ExecutionMode(false), meters), event -> { }, meters);
+        store.load();
+        StocksController controller = new StocksController(new StockQueryService(store, 0, meters),
+                mock(ChartService.class), exportJobService, mock(ScreenerService.class),
+                mock(LiveFeedBroadcaster.class), new StockRowWriter(json));
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void pagesFollowTheirCursor() throws Exception {
+        String next = page("/api/stocks/list?limit=3&sortBy=close").get("nextCursor").asText();
+        JsonNode second = page("/api/stocks/list?limit=3&sortBy=close&cursor=" + next);
+        assertEquals(1, second.get("rows").size());
+        assertTrue(second.get("nextCursor").isNull());
+    }
+
+    @Test
+    void garbageCursorIsBadRequest() throws Exception {
+        mvc.perform(get("/api/stocks/list").param("limit", "2").param("cursor", "garbage!"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/stocks/list").param("limit", "2").param("cursor", "AAAAAAAA"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void tamperedCursorIsBadRequest() throws Exception {
+        String next = page("/api/stocks/list?limit=2&sortBy=close").get("nextCursor").asText();
+        byte[] bytes = Base64.getUrlDecoder().decode(next);
+        bytes[bytes.length / 2] ^= 0x10;
+        String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        mvc.perform(get("/api/stocks/list").param("limit", "2").param("sortBy", "close").param("cursor", tampered))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void cursorFromAnotherSortIsBadRequest() throws Exception {
+        String next = page("/api/stocks/list?limit=2&sortBy=close").get("nextCursor").asText();
+        mvc.perform(get("/api/stocks/list").param("limit", "2").param("sortBy", "volume").param("cursor", next))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/stocks/list").param("limit", "2").param("sortBy", "close").param("sortDir", "desc")
+                        .param("cursor", next))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void fullExportQueueIsTooManyRequests() throws Exception {
+        ExportJob job = new ExportJob("job-1", "key");
+        when(exportJobService.submit(Set.of("AAA"), null, null, "date", "asc"))
+                .thenReturn(job)
+                .thenThrow(new RejectedExecutionException("queue full"));
+        mvc.perform(post("/api/stocks/export/jobs").param("tickers", "AAA"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/api/stocks/export/jobs/job-1"));
+        mvc.perform(post("/api/stocks/export/jobs").param("tickers", "AAA"))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    private JsonNode page(String uri) throws Exception {
+        String body = mvc.perform(get(uri)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return json.readTree(body);
+    }
+}